@@ -0,0 +1,74 @@
+package com.example.demo;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+// ベンチマーク共通の状態：アプリ（空いているポート）を組み込み H2 で起動して、SyntheticData でデータを入れる
+// ・授業名・教員名の人気は Zipf 分布、コメントは返信への返信を含む深いスレッド
+// ・件数は -p reviews=1000000 のように JMH の引数で変える
+// ・コメントツリーの計測には、コメントの多い順に threadReviews 件のレビューを使う
+@State(Scope.Benchmark)
+public class BenchmarkApp {
+
+    @Param("10000")
+    public int reviews;
+
+    @Param("1000")
+    public int users;
+
+    @Param("20")
+    public int threadReviews;
+
+    ConfigurableApplicationContext context;
+    ReviewService service;
+    ImageStore imageStore;
+    SyntheticData data;
+    // コメントの多いレビュー
+    List<Review> threads = new ArrayList<>();
+    int maxReviewId;
+
+    private final Path uploads = Path.of("target", "jmh-uploads");
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        FileSystemUtils.deleteRecursively(uploads);
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties("server.port=0",
+                        "review.uploads.dir=" + uploads,
+                        "review.sql.metrics.enabled=false",
+                        "logging.level.root=warn")
+                .run();
+        service = context.getBean(ReviewService.class);
+        imageStore = context.getBean(ImageStore.class);
+
+        data = new SyntheticData(42);
+        SyntheticData.Dataset dataset = data.generate(context, users, reviews);
+        List<Integer> ids = dataset.getReviewIds();
+        maxReviewId = ids.get(ids.size() - 1);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        for (Integer id : jdbc.queryForList("select review_id from comment group by review_id "
+                + "order by count(*) desc limit ?", Integer.class, threadReviews)) {
+            threads.add(service.getById(id));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        context.close();
+        FileSystemUtils.deleteRecursively(uploads);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+// JMH の結果（-rf json）を基準の結果と比べて、悪くなったものがあれば終了コード 1
+//   mvn -Pjmh exec:java@jmh-gate -Djmh.baseline=jmh-baseline.json -Djmh.tolerance=0.10
+// ・ベンチマーク名＋パラメータが同じものどうしを比べる（基準に無いものは表示だけ）
+// ・Throughput は大きいほど、それ以外（AverageTime など）は小さいほど良い
+public class JmhGate {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: JmhGate <result.json> <baseline.json> [tolerance]");
+            System.exit(2);
+        }
+        File result = new File(args[0]);
+        File baseline = new File(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        if (!baseline.exists()) {
+            System.out.println("No baseline at " + baseline + "; copy " + result + " there to start gating.");
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> base = index(mapper.readTree(baseline));
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> e : index(mapper.readTree(result)).entrySet()) {
+            JsonNode now = e.getValue();
+            JsonNode before = base.get(e.getKey());
+            double score = now.path("primaryMetric").path("score").asDouble();
+            String unit = now.path("primaryMetric").path("scoreUnit").asString();
+            if (before == null) {
+                System.out.printf("NEW   %-70s %12.3f %s%n", e.getKey(), score, unit);
+                continue;
+            }
+            double old = before.path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(now.path("mode").asString());
+            double change = old == 0 ? 0 : (score - old) / old;
+            boolean worse = higherIsBetter ? change < -tolerance : change > tolerance;
+            if (worse) {
+                regressions++;
+            }
+            System.out.printf("%-5s %-70s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                    worse ? "WORSE" : "ok", e.getKey(), old, score, unit, change * 100);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100) + "%");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode r : results) {
+            StringBuilder key = new StringBuilder(r.path("benchmark").asString());
+            JsonNode params = r.path("params");
+            if (params.isObject()) {
+                params.properties().forEach(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asString()));
+            }
+            byKey.put(key.append(" [").append(r.path("mode").asString()).append(']').toString(), r);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ReviewService の読み取り系（一覧・検索・平均・コメントツリー）
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewServiceBenchmark {
+
+    // キーワード検索は 対象 × 並び順 の全組み合わせ
+    @State(Scope.Benchmark)
+    public static class Search {
+        @Param({ "all", "course", "teacher" })
+        public String target;
+
+        @Param({ "recent", "rating", "likes" })
+        public String sort;
+
+        // 人気に沿った授業名か教員の名字
+        String keyword(SyntheticData data) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            boolean course = target.equals("course") || (target.equals("all") && random.nextBoolean());
+            return course ? data.course(random) : data.teacher(random).split(" ")[0];
+        }
+    }
+
+    // キーワード無しの一覧は並び順だけ
+    @State(Scope.Benchmark)
+    public static class Browse {
+        @Param({ "recent", "rating", "likes" })
+        public String sort;
+    }
+
+    @Benchmark
+    public CursorPage<ReviewCard> search(BenchmarkApp app, Search search) {
+        return app.service.search(search.keyword(app.data), search.target, search.sort, null,
+                ReviewService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<ReviewCard> browse(BenchmarkApp app, Browse browse) {
+        return app.service.search(null, "all", browse.sort, null, ReviewService.DEFAULT_PAGE_SIZE);
+    }
+
+    // 2ページ目以降（カーソル付き）
+    @Benchmark
+    public CursorPage<ReviewCard> browseNextPage(BenchmarkApp app, Browse browse) {
+        CursorPage<ReviewCard> first = app.service.search(null, "all", browse.sort, null,
+                ReviewService.DEFAULT_PAGE_SIZE);
+        return app.service.search(null, "all", browse.sort, first.getNextCursor(),
+                ReviewService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public double getAverage(BenchmarkApp app) {
+        return app.service.getAverage(app.data.course(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<CommentView> getComments(BenchmarkApp app) {
+        Review review = app.threads.get(ThreadLocalRandom.current().nextInt(app.threads.size()));
+        return app.service.getComments(review);
+    }
+}
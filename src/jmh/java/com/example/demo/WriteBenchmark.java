@@ -0,0 +1,72 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+// 書き込み系（同時いいね・画像の保存）
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+    // 少数のレビューに8スレッドで同時にいいねする
+    @State(Scope.Benchmark)
+    public static class HotReviews {
+        @Param("10")
+        public int hot;
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void like(BenchmarkApp app, HotReviews hot) {
+        app.service.like(app.maxReviewId - ThreadLocalRandom.current().nextInt(hot.hot));
+    }
+
+    // 毎回中身の違う画像ファイル（ハッシュ計算・一時ファイル・移動まで通る）
+    @State(Scope.Thread)
+    public static class Upload {
+        @Param("200000")
+        public int bytes;
+
+        private final AtomicLong sequence = new AtomicLong();
+        private byte[] content;
+
+        @Setup
+        public void setUp() {
+            content = new byte[bytes];
+            new Random(7).nextBytes(content);
+        }
+
+        MockMultipartFile next() {
+            ByteBuffer.wrap(content).putLong(sequence.incrementAndGet()).putLong(System.nanoTime());
+            return new MockMultipartFile("imageFile", "photo.jpg", "image/jpeg", content);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String saveImage(BenchmarkApp app, Upload upload) throws IOException {
+        return app.imageStore.store(upload.next());
+    }
+}
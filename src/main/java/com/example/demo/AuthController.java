@@ -1,5 +1,9 @@
 package com.example.demo;
 
+import java.io.IOException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -55,4 +59,10 @@ public class AuthController {
         // 登録後はログインページへ
         return "redirect:/login?registered";
     }
+
+    // ハッシュ待ちが溢れたら 503（Retry-After 付き）
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public void hashingBusy(PasswordHashingBusyException e, HttpServletResponse response) throws IOException {
+        e.writeTo(response);
+    }
 }
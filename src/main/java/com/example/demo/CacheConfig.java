@@ -0,0 +1,78 @@
+package com.example.demo;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+// Hibernate の2次キャッシュ（Review / User / Comment と findByEmail の結果）
+// ・中身は Caffeine。件数上限と書き込みからの有効期限で古いものを捨てる
+// ・エンティティの保存・削除は Hibernate が自分で反映する。
+//   JDBC で直接書くいいね数だけは LikeCounter が書き込み後に追い出す
+// ・review.cache.enabled=false で丸ごと無効
+@Configuration
+public class CacheConfig {
+
+    // キャッシュ領域（エンティティはクラス名がそのまま領域名になる）
+    static final List<String> ENTITY_REGIONS = List.of(
+            Review.class.getName(), User.class.getName(), Comment.class.getName());
+    static final String QUERY_REGION = "default-query-results-region";
+    static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // アプリ（Spring コンテキスト）ごとに別の CacheManager にする
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${review.cache.max-entries:10000}") long maxEntries,
+            @Value("${review.cache.ttl:10m}") Duration ttl) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager manager = provider.getCacheManager(
+                URI.create("review-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : ENTITY_REGIONS) {
+            create(manager, region, maxEntries, ttl);
+        }
+        create(manager, QUERY_REGION, maxEntries, ttl);
+        // 更新時刻の領域は結果より先に消えると古い結果を返しうるので、期限なし
+        create(manager, TIMESTAMPS_REGION, maxEntries, null);
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(
+            @Value("${review.cache.enabled:true}") boolean enabled,
+            CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", enabled);
+            properties.put("hibernate.cache.use_query_cache", enabled);
+            if (!enabled) {
+                return;
+            }
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+            // ヒット率などを CacheStatsController で見るため
+            properties.put("hibernate.generate_statistics", true);
+        };
+    }
+
+    private static void create(CacheManager manager, String region, long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        config.setMaximumSize(OptionalLong.of(maxEntries));
+        if (ttl != null) {
+            config.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        manager.createCache(region, config);
+    }
+}
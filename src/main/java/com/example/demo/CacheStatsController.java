@@ -0,0 +1,49 @@
+package com.example.demo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// 2次キャッシュの領域ごと・描画済み HTML のキャッシュのヒット・ミス数
+@RestController
+public class CacheStatsController {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReviewFragments fragments;
+
+    public CacheStatsController(EntityManagerFactory entityManagerFactory, ReviewFragments fragments) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.fragments = fragments;
+    }
+
+    @GetMapping("/api/cache/stats")
+    public Map<String, Map<String, Long>> stats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>(fragments.stats());
+        if (!statistics.isStatisticsEnabled()) {
+            return result;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics s = statistics.getDomainDataRegionStatistics(region);
+            if (s == null) continue;
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("hits", s.getHitCount());
+            counts.put("misses", s.getMissCount());
+            counts.put("puts", s.getPutCount());
+            result.put(region, counts);
+        }
+        Map<String, Long> queries = new LinkedHashMap<>();
+        queries.put("hits", statistics.getQueryCacheHitCount());
+        queries.put("misses", statistics.getQueryCacheMissCount());
+        queries.put("puts", statistics.getQueryCachePutCount());
+        result.put(CacheConfig.QUERY_REGION, queries);
+        return result;
+    }
+}
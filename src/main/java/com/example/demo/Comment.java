@@ -1,11 +1,15 @@
 package com.example.demo;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+// 2次キャッシュ対象（CacheConfig）
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Comment {
 
     @Id
@@ -1,8 +1,28 @@
 package com.example.demo;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByReviewAndParentCommentIsNullOrderByIdAsc(Review review);
+
+    // コメントツリー用：エンティティではなく必要な列だけを1回で読む
+    interface CommentRow {
+        Long getId();
+        Long getParentId();
+        String getAuthorEmail();
+        String getContent();
+        LocalDateTime getCreatedAt();
+        String getUniversity();
+        String getFaculty();
+        String getDepartment();
+    }
+
+    @Query("select c.id as id, c.parentComment.id as parentId, u.email as authorEmail, "
+            + "c.content as content, c.createdAt as createdAt, c.university as university, "
+            + "c.faculty as faculty, c.department as department "
+            + "from Comment c left join c.user u where c.review.id = :reviewId order by c.id")
+    List<CommentRow> findThreadRows(@Param("reviewId") Integer reviewId);
 }
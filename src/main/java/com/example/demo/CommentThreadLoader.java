@@ -0,0 +1,45 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+// レビュー1件分のコメントを1回のクエリでまとめて読み、親子のツリーにする
+// （以前は親コメントごとに replies、コメントごとに user を遅延ロードしていた）
+@Component
+public class CommentThreadLoader {
+
+    private final CommentRepository commentRepository;
+
+    public CommentThreadLoader(CommentRepository commentRepository) {
+        this.commentRepository = commentRepository;
+    }
+
+    // 返り値はトップレベルのコメント（id 昇順）。返信も id 昇順
+    public List<CommentView> load(Integer reviewId) {
+        List<CommentRepository.CommentRow> rows = commentRepository.findThreadRows(reviewId);
+
+        Map<Long, CommentView> byId = new HashMap<>(rows.size() * 2);
+        for (CommentRepository.CommentRow row : rows) {
+            byId.put(row.getId(), new CommentView(row.getId(), row.getAuthorEmail(), row.getContent(),
+                    row.getCreatedAt(), row.getUniversity(), row.getFaculty(), row.getDepartment()));
+        }
+
+        List<CommentView> roots = new ArrayList<>();
+        for (CommentRepository.CommentRow row : rows) {
+            CommentView view = byId.get(row.getId());
+            CommentView parent = row.getParentId() == null ? null : byId.get(row.getParentId());
+            if (parent == null) {
+                // 親が無い（または別レビューの親を指している）ものはトップレベル扱い
+                roots.add(view);
+            } else {
+                parent.addReply(view);
+            }
+        }
+        return Collections.unmodifiableList(roots);
+    }
+}
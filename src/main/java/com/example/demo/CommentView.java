@@ -0,0 +1,45 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 詳細ページ表示用のコメント（読み取り専用。返信はツリーで持つ）
+public class CommentView {
+
+    private final Long id;
+    private final String authorEmail;
+    private final String content;
+    private final LocalDateTime createdAt;
+    private final String university;
+    private final String faculty;
+    private final String department;
+    private final List<CommentView> replies = new ArrayList<>();
+    private final List<CommentView> readOnlyReplies = Collections.unmodifiableList(replies);
+
+    public CommentView(Long id, String authorEmail, String content, LocalDateTime createdAt,
+                       String university, String faculty, String department) {
+        this.id = id;
+        this.authorEmail = authorEmail;
+        this.content = content;
+        this.createdAt = createdAt;
+        this.university = university;
+        this.faculty = faculty;
+        this.department = department;
+    }
+
+    // ツリーを組み立てるときだけ使う
+    void addReply(CommentView reply) {
+        replies.add(reply);
+    }
+
+    public Long getId() { return id; }
+    public String getAuthorEmail() { return authorEmail; }
+    public String getContent() { return content; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public String getUniversity() { return university; }
+    public String getFaculty() { return faculty; }
+    public String getDepartment() { return department; }
+    public List<CommentView> getReplies() { return readOnlyReplies; }
+}
@@ -0,0 +1,23 @@
+package com.example.demo;
+
+import java.util.List;
+
+// カーソル方式のページング結果（前へ / 次へ のカーソル付き）
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public CursorPage(List<T> items, String nextCursor, String prevCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPrevCursor() { return prevCursor; }
+    public boolean isHasNext() { return nextCursor != null; }
+    public boolean isHasPrev() { return prevCursor != null; }
+}
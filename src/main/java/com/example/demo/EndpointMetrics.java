@@ -0,0 +1,101 @@
+package com.example.demo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+// エンドポイント（"GET /reviews/{id}" の単位）ごとの所要時間ヒストグラムと SQL の回数
+@Component
+public class EndpointMetrics {
+
+    // ヒストグラムの区切り（ミリ秒）。最後のバケツはそれより上全部
+    static final long[] BUCKETS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+    static final class Endpoint {
+        final LongAdder requests = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_MS.length + 1);
+        final LongAdder statements = new LongAdder();
+        final AtomicLong maxStatements = new AtomicLong();
+        final LongAdder rows = new LongAdder();
+        final LongAdder jdbcNanos = new LongAdder();
+        final LongAdder nPlusOne = new LongAdder();
+
+        void record(long nanos, QueryStats queries, boolean suspectedNPlusOne) {
+            requests.increment();
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMillis(nanos)));
+            statements.add(queries.getStatements());
+            maxStatements.accumulateAndGet(queries.getStatements(), Math::max);
+            rows.add(queries.getRows());
+            jdbcNanos.add(queries.getJdbcNanos());
+            if (suspectedNPlusOne) {
+                nPlusOne.increment();
+            }
+        }
+
+        // バケツから見積もった分位点（そのバケツの上限。最後のバケツは -1）
+        long percentileMillis(double p) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i < BUCKETS_MS.length ? BUCKETS_MS[i] : -1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKETS_MS.length; i++) {
+            if (millis <= BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS_MS.length;
+    }
+
+    public void record(String endpoint, long nanos, QueryStats queries, boolean suspectedNPlusOne) {
+        endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).record(nanos, queries, suspectedNPlusOne);
+    }
+
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        endpoints.forEach((name, e) -> {
+            long requests = e.requests.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("requests", requests);
+            m.put("meanMillis", requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(e.totalNanos.sum() / requests));
+            m.put("p50Millis", e.percentileMillis(0.50));
+            m.put("p99Millis", e.percentileMillis(0.99));
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < e.buckets.length(); i++) {
+                histogram.put(i < BUCKETS_MS.length ? "le" + BUCKETS_MS[i] : "inf", e.buckets.get(i));
+            }
+            m.put("histogram", histogram);
+            m.put("statements", e.statements.sum());
+            m.put("statementsPerRequest", requests == 0 ? 0.0 : (double) e.statements.sum() / requests);
+            m.put("maxStatements", e.maxStatements.get());
+            m.put("rows", e.rows.sum());
+            m.put("jdbcMillis", TimeUnit.NANOSECONDS.toMillis(e.jdbcNanos.sum()));
+            m.put("nPlusOneSuspected", e.nPlusOne.sum());
+            result.put(name, m);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.demo;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+// アップロード画像の保存と縮小版の生成
+// ・アップロードは一時ファイルへ流しながら SHA-256 を取り、"<ハッシュ>.<拡張子>" で保存する（同じ画像は1ファイル）
+// ・サムネイル / 中サイズはバックグラウンドの上限付きスレッドプールで作る
+// ・縮小版ができるまでは元画像の URL を返す
+@Service
+public class ImageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStore.class);
+
+    public static final String URL_PREFIX = "/uploads/";
+
+    // 縮小版の種類（長辺のピクセル数）
+    enum Variant {
+        THUMB("thumb", 320),
+        MEDIUM("medium", 1024);
+
+        final String suffix;
+        final int longestSide;
+
+        Variant(String suffix, int longestSide) {
+            this.suffix = suffix;
+            this.longestSide = longestSide;
+        }
+    }
+
+    // これを超える画像は縮小版を作らない（展開するとメモリを食いつぶすため）
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    // 配信してよいファイル名 / ハッシュ名（縮小版を含む）
+    private static final Pattern SERVABLE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}(-thumb|-medium)?(\\.[a-z0-9]{1,5})?");
+
+    private final Path dir;
+    private final Path tmpDir;
+    private final ThreadPoolExecutor executor;
+
+    private final Set<String> ready = ConcurrentHashMap.newKeySet();       // 生成済みの縮小版
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();  // キュー投入済みの元画像
+    private final Set<String> unsupported = ConcurrentHashMap.newKeySet(); // 画像として読めなかったもの
+    // 縮小版ができるたびに進む（表示用 URL が変わるので、ページの ETag に混ぜる）
+    private final AtomicLong generation = new AtomicLong();
+
+    public ImageStore(@Value("${review.uploads.dir:uploads}") String uploadDir,
+                      @Value("${review.images.workers:2}") int workers,
+                      @Value("${review.images.queue-capacity:100}") int queueCapacity) {
+        this.dir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.tmpDir = dir.resolve("tmp");
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    // 配信用：/uploads/ 直下のファイル名を実ファイルにする（不正な名前・存在しないものは null）
+    public Path resolve(String name) {
+        if (name == null || !SERVABLE_NAME.matcher(name).matches()) {
+            return null;
+        }
+        Path file = dir.resolve(name);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    // ハッシュ名のファイル（と、その縮小版）は中身が変わらない
+    public static boolean isContentAddressed(String name) {
+        return CONTENT_ADDRESSED_NAME.matcher(name).matches();
+    }
+
+    // =========================
+    // 保存
+    // =========================
+    // ブラウザからアクセスするときのパスを返す（空なら null）
+    public String store(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        Files.createDirectories(tmpDir);
+
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        String name;
+        try {
+            MessageDigest sha256 = newSha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            name = HexFormat.of().formatHex(sha256.digest()) + extension(file.getOriginalFilename());
+            moveIntoPlace(tmp, dir.resolve(name));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        scheduleVariants(name);
+        return URL_PREFIX + name;
+    }
+
+    // 同じ内容がすでにあればそれを使う
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        if (Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 同時に同じ画像が上がってきた
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // 拡張子は英数字だけ残す（.png, .jpg など）
+    private static String extension(String originalFilename) {
+        if (originalFilename == null) return "";
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot == -1) return "";
+        String ext = originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ext.matches("[a-z0-9]{1,5}") ? "." + ext : "";
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // =========================
+    // 表示用の URL（テンプレートから @imageStore で呼ぶ）
+    // =========================
+    public String thumbnailUrl(String imagePath) {
+        return variantUrl(imagePath, Variant.THUMB);
+    }
+
+    public String mediumUrl(String imagePath) {
+        return variantUrl(imagePath, Variant.MEDIUM);
+    }
+
+    private String variantUrl(String imagePath, Variant variant) {
+        if (imagePath == null || !imagePath.startsWith(URL_PREFIX)) {
+            return imagePath;
+        }
+        String name = imagePath.substring(URL_PREFIX.length());
+        if (name.contains("/") || name.contains("..")) {
+            return imagePath;
+        }
+        String variantName = variantName(name, variant);
+        if (ready.contains(variantName)) {
+            return URL_PREFIX + variantName;
+        }
+        if (Files.exists(dir.resolve(variantName))) {
+            ready.add(variantName);
+            return URL_PREFIX + variantName;
+        }
+        // 以前アップロードされた画像など、まだ無ければ作っておく
+        scheduleVariants(name);
+        return imagePath;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    static String variantName(String name, Variant variant) {
+        int dot = name.lastIndexOf('.');
+        String base = dot == -1 ? name : name.substring(0, dot);
+        return base + "-" + variant.suffix + "." + variantFormat(name);
+    }
+
+    // 透過がありうる形式は PNG、それ以外は JPEG で書き出す
+    private static String variantFormat(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+    }
+
+    // =========================
+    // 縮小版の生成（バックグラウンド）
+    // =========================
+    private void scheduleVariants(String name) {
+        if (unsupported.contains(name) || !inProgress.add(name)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(name);
+                } catch (Exception e) {
+                    log.warn("Failed to create resized images for {}", name, e);
+                    unsupported.add(name);
+                } finally {
+                    inProgress.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 混んでいるときは諦める（次に表示されたときにもう一度キューに入る）
+            log.debug("Image queue is full, skipping {}", name);
+            inProgress.remove(name);
+        }
+    }
+
+    private void generate(String name) throws IOException {
+        Path source = dir.resolve(name);
+        if (!Files.exists(source)) {
+            unsupported.add(name);
+            return;
+        }
+
+        BufferedImage medium;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                unsupported.add(name);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    unsupported.add(name);
+                    return;
+                }
+                // 大きな画像は間引きながら読む（中サイズの2倍程度の解像度で十分）
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (Variant.MEDIUM.longestSide * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                medium = scale(decoded, Variant.MEDIUM.longestSide, variantFormat(name));
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        write(medium, name, Variant.MEDIUM);
+        write(scale(medium, Variant.THUMB.longestSide, variantFormat(name)), name, Variant.THUMB);
+        generation.incrementAndGet();
+    }
+
+    private void write(BufferedImage image, String name, Variant variant) throws IOException {
+        String variantName = variantName(name, variant);
+        String format = variantFormat(name);
+        Path tmp = Files.createTempFile(tmpDir, "variant-", ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if ("jpg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(0.85f);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            moveIntoPlace(tmp, dir.resolve(variantName));
+            ready.add(variantName);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage src, int longestSide, String format) {
+        double ratio = Math.min(1.0, (double) longestSide / Math.max(src.getWidth(), src.getHeight()));
+        int w = Math.max(1, (int) Math.round(src.getWidth() * ratio));
+        int h = Math.max(1, (int) Math.round(src.getHeight() * ratio));
+        boolean alpha = "png".equals(format);
+
+        BufferedImage dst = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            if (!alpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+            }
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // テスト・停止処理用：キューが空になるまで待つ
+    boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (inProgress.isEmpty()) return true;
+            Thread.sleep(20);
+        }
+        return inProgress.isEmpty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
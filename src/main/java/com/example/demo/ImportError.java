@@ -0,0 +1,17 @@
+package com.example.demo;
+
+// 取り込めなかった行（line はファイル上の行番号）
+public class ImportError {
+
+    private final long line;
+    private final String message;
+
+    public ImportError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public String getType() { return "error"; }
+    public long getLine() { return line; }
+    public String getMessage() { return message; }
+}
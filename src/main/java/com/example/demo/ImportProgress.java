@@ -0,0 +1,27 @@
+package com.example.demo;
+
+// 一括取り込みの進み具合（バッチを書き込むたびに通知され、最後に done=true で1回）
+public class ImportProgress {
+
+    private final long startedAt = System.nanoTime();
+    private long processed;
+    private long imported;
+    private long failed;
+    private boolean done;
+
+    void add(long processed, long imported, long failed) {
+        this.processed += processed;
+        this.imported += imported;
+        this.failed += failed;
+    }
+
+    void finish() {
+        this.done = true;
+    }
+
+    public String getType() { return done ? "done" : "progress"; }
+    public long getProcessed() { return processed; }
+    public long getImported() { return imported; }
+    public long getFailed() { return failed; }
+    public long getElapsedMillis() { return (System.nanoTime() - startedAt) / 1_000_000; }
+}
@@ -0,0 +1,35 @@
+package com.example.demo;
+
+import java.util.Map;
+
+// 取り込みファイルの1行（CSV の1レコード / NDJSON の1行）
+// 読めなかった行は fields が null で error に理由が入る
+public class ImportRow {
+
+    private final long line;
+    private final Map<String, String> fields;
+    private final String error;
+
+    private ImportRow(long line, Map<String, String> fields, String error) {
+        this.line = line;
+        this.fields = fields;
+        this.error = error;
+    }
+
+    public static ImportRow of(long line, Map<String, String> fields) {
+        return new ImportRow(line, fields, null);
+    }
+
+    public static ImportRow broken(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+
+    public long getLine() { return line; }
+    public String getError() { return error; }
+
+    public String get(String name) {
+        if (fields == null) return null;
+        String value = fields.get(name);
+        return value == null || value.isBlank() ? null : value.strip();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+// 取り込みファイルを1行ずつ ImportRow にする（全体をメモリに載せない）
+// CSV は1行目が列名（RFC 4180 の "..." と "" に対応）、NDJSON は1行1オブジェクト
+public abstract class ImportRowReader implements Iterator<ImportRow> {
+
+    protected final BufferedReader in;
+    protected long lineNo;
+    private ImportRow next;
+    private boolean done;
+
+    protected ImportRowReader(Reader reader) {
+        this.in = reader instanceof BufferedReader b ? b : new BufferedReader(reader, 64 * 1024);
+    }
+
+    public static ImportRowReader csv(Reader reader) {
+        return new Csv(reader);
+    }
+
+    public static ImportRowReader ndjson(Reader reader, ObjectMapper objectMapper) {
+        return new Ndjson(reader, objectMapper);
+    }
+
+    // 次の1件（終わりなら null）
+    protected abstract ImportRow read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public ImportRow next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        ImportRow row = next;
+        next = null;
+        return row;
+    }
+
+    // =========================
+    // CSV
+    // =========================
+    static final class Csv extends ImportRowReader {
+
+        private List<String> header;
+
+        Csv(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected ImportRow read() throws IOException {
+            if (header == null) {
+                List<String> names = record();
+                if (names == null) return null;
+                header = new ArrayList<>(names.size());
+                for (String name : names) header.add(name.strip());
+                if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                    header.set(0, header.get(0).substring(1)); // BOM
+                }
+            }
+            while (true) {
+                long start = lineNo + 1;
+                List<String> values;
+                try {
+                    values = record();
+                } catch (IllegalStateException e) {
+                    return ImportRow.broken(start, e.getMessage());
+                }
+                if (values == null) return null;
+                if (values.size() == 1 && values.get(0).isEmpty()) continue; // 空行
+                if (values.size() != header.size()) {
+                    return ImportRow.broken(start, "expected " + header.size() + " columns but got " + values.size());
+                }
+                Map<String, String> fields = new HashMap<>(header.size() * 2);
+                for (int i = 0; i < header.size(); i++) fields.put(header.get(i), values.get(i));
+                return ImportRow.of(start, fields);
+            }
+        }
+
+        // 1レコード分（引用符の中の改行は続きとして読む）
+        private List<String> record() throws IOException {
+            String line = in.readLine();
+            if (line == null) return null;
+            lineNo++;
+
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) break;
+                    String more = in.readLine();
+                    if (more == null) throw new IllegalStateException("unterminated quoted field");
+                    lineNo++;
+                    value.append('\n');
+                    line = more;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            value.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"' && value.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+
+    // =========================
+    // NDJSON
+    // =========================
+    static final class Ndjson extends ImportRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected ImportRow read() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) return null;
+                lineNo++;
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JacksonException e) {
+                return ImportRow.broken(lineNo, "invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return ImportRow.broken(lineNo, "expected a JSON object");
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, JsonNode> e : node.properties()) {
+                if (!e.getValue().isNull()) fields.put(e.getKey(), e.getValue().asString());
+            }
+            return ImportRow.of(lineNo, fields);
+        }
+    }
+}
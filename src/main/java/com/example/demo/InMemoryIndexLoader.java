@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// 起動時にメモリ上の索引（ReviewSearchIndex・NameSuggester）を DB から読む
+// 以前は各クラスの @PostConstruct で読んでいたが、それだと Bean を作るだけで DB が要る。
+// Lifecycle の start() にしておくと
+// ・Web サーバーより前の phase なので、読み終えるまでリクエストは来ない（これまでと同じ）
+// ・CDS の学習用の起動（-Dspring.context.exit=onRefresh）は start() の前で終わるので DB なしで回せる
+// ・遅延初期化（spring.main.lazy-initialization）でも Lifecycle は起動時に作られて読まれる
+@Component
+public class InMemoryIndexLoader implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryIndexLoader.class);
+
+    private final ReviewSearchIndex searchIndex;
+    private final NameSuggester suggester;
+    private volatile boolean running;
+
+    public InMemoryIndexLoader(ReviewSearchIndex searchIndex, NameSuggester suggester) {
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+    }
+
+    @Override
+    public void start() {
+        long start = System.nanoTime();
+        searchIndex.rebuild();
+        suggester.rebuild();
+        running = true;
+        log.info("Loaded in-memory indexes in {}ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+}
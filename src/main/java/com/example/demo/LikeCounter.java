@@ -0,0 +1,204 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// いいねをメモリ上で数えて、まとめて DB に書き込むカウンタ
+// 1回のいいねごとに SELECT＋UPDATE していたのをやめ、
+// 一定間隔で "likes = likes + ?" のバッチ UPDATE 1回にまとめる（同時いいねの取りこぼしも無くなる）
+@Component
+public class LikeCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeCounter.class);
+
+    private static final String UPDATE_SQL = "update review set likes = likes + ?, updated_at = current_timestamp where id = ?";
+
+    // スレッドごとに別のセルへ足す（LongAdder と同じ考え方）。
+    // LongAdder の sumThenReset は同時更新を取りこぼすので、セルごとに getAndSet(0) で回収する
+    static final class Counter {
+        private static final int STRIPES = Integer.highestOneBit(
+                Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        private static final int PAD = 8; // 1セル = 64バイトでキャッシュラインの取り合いを避ける
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+        void add(long n) {
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+            cells.getAndAdd(stripe * PAD, n);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PAD);
+            }
+            return sum;
+        }
+
+        long drain() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.getAndSet(i * PAD, 0);
+            }
+            return sum;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+    // DB へ書き込み中の差分（コミットまでの間も読み取りに含める）
+    private volatile Map<Integer, Long> inFlight = Map.of();
+    // 書き込み中は DB 待ちになるので synchronized ではなく Lock（仮想スレッドをピン留めしない）
+    private final Lock flushLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public LikeCounter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                       EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void increment(Integer id) {
+        add(id, 1);
+    }
+
+    // まだ DB に書かれていない分
+    public long pending(Integer id) {
+        Counter c = counters.get(id);
+        long pending = c == null ? 0 : c.sum();
+        Long flushing = inFlight.get(id);
+        return flushing == null ? pending : pending + flushing;
+    }
+
+    // DB から読んだ値に未反映分を足して表示用にする（likes 列は updatable=false なので書き戻されない）
+    public Review applyPending(Review review) {
+        long pending = pending(review.getId());
+        if (pending != 0) {
+            review.setLikes((int) (review.getLikes() + pending));
+        }
+        return review;
+    }
+
+    public List<Review> applyPending(List<Review> reviews) {
+        reviews.forEach(this::applyPending);
+        return reviews;
+    }
+
+    // 一覧のカードは不変なので、未反映分があるものだけ作り直す
+    public List<ReviewCard> applyPendingToCards(List<ReviewCard> cards) {
+        List<ReviewCard> result = new ArrayList<>(cards.size());
+        for (ReviewCard card : cards) {
+            long pending = pending(card.getId());
+            result.add(pending == 0 ? card : card.withLikes((int) (card.getLikes() + pending)));
+        }
+        return result;
+    }
+
+    // 画面から読んだエンティティは未反映分を足したいいね数を持っている。
+    // それを編集で保存すると2次キャッシュにその値が載るので、コミット後に追い出して DB から読み直させる
+    public void evictAfterCommit(Integer id) {
+        Runnable evict = () -> entityManagerFactory.getCache().evict(Review.class, id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
+
+    private void add(Integer id, long n) {
+        while (true) {
+            Counter c = counters.computeIfAbsent(id, k -> new Counter());
+            c.add(n);
+            if (counters.get(id) == c) {
+                return;
+            }
+            // 足している間に flush が空のカウンタを片付けた。自分の分は自分で回収して入れ直す
+            n = c.drain();
+            if (n == 0) {
+                return;
+            }
+        }
+    }
+
+    // =========================
+    // DB への書き込み
+    // =========================
+    @Scheduled(fixedDelayString = "${review.likes.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (Map.Entry<Integer, Counter> e : counters.entrySet()) {
+            Counter c = e.getValue();
+            long delta = c.drain();
+            if (delta != 0) {
+                deltas.put(e.getKey(), delta);
+            } else if (counters.remove(e.getKey(), c)) {
+                // しばらくいいねが無いので片付ける。直前に足された分は拾い直す
+                long residual = c.drain();
+                if (residual != 0) {
+                    deltas.merge(e.getKey(), residual, Long::sum);
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        inFlight = deltas;
+        try {
+            List<Object[]> args = new ArrayList<>(deltas.size());
+            deltas.forEach((id, delta) -> args.add(new Object[] { delta, id }));
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, args));
+            // Hibernate を通さずに書いたので、2次キャッシュの古いいいね数を追い出す
+            Cache cache = entityManagerFactory.getCache();
+            deltas.keySet().forEach(id -> cache.evict(Review.class, id));
+        } catch (RuntimeException e) {
+            // 書けなかった分は次回に持ち越す
+            log.warn("Failed to flush {} like counters, will retry", deltas.size(), e);
+            deltas.forEach(this::add);
+        } finally {
+            inFlight = Map.of();
+        }
+    }
+
+    // 停止時に残りを書き切る
+    @PreDestroy
+    public void drainOnShutdown() {
+        flush();
+    }
+}
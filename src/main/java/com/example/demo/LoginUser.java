@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// ログイン中のユーザー（セッションに入る Principal）
+// ログイン時に読んだ id・大学・ロールを持っておき、リクエストごとの findByEmail をなくす
+public class LoginUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String email;
+    private String password;
+    private final String role;
+    private final String university;
+
+    public LoginUser(Long id, String email, String password, String role, String university) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.role = role;
+        this.university = university;
+    }
+
+    public static LoginUser from(User user) {
+        return new LoginUser(user.getId(), user.getEmail(), user.getPassword(),
+                user.getRole(), user.getUniversity());
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+    public String getUniversity() { return university; }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role));
+    }
+
+    // 認証が終わったらハッシュはセッションに残さない
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+}
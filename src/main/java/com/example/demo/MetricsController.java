@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// エンドポイントごとの所要時間・SQL の回数（RequestMetricsFilter が集めたもの）と、パスワードのハッシュ待ち、
+// 読み取りレプリカの振り分け
+@RestController
+public class MetricsController {
+
+    private final EndpointMetrics metrics;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final ReadReplicas replicas;
+    private final ReviewETags etags;
+    private final ReviewEvents events;
+
+    public MetricsController(EndpointMetrics metrics, BoundedPasswordEncoder passwordEncoder, ReadReplicas replicas,
+                             ReviewETags etags, ReviewEvents events) {
+        this.metrics = metrics;
+        this.passwordEncoder = passwordEncoder;
+        this.replicas = replicas;
+        this.etags = etags;
+        this.events = events;
+    }
+
+    @GetMapping("/api/metrics/endpoints")
+    public Map<String, Map<String, Object>> endpoints() {
+        return metrics.stats();
+    }
+
+    @GetMapping("/api/metrics/password-hashing")
+    public Map<String, Object> passwordHashing() {
+        return passwordEncoder.stats();
+    }
+
+    @GetMapping("/api/metrics/replicas")
+    public Map<String, Object> replicas() {
+        return replicas.stats();
+    }
+
+    @GetMapping("/api/metrics/etags")
+    public Map<String, Object> etags() {
+        return etags.stats();
+    }
+
+    @GetMapping("/api/metrics/events")
+    public Map<String, Object> events() {
+        return events.stats();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 授業名・教員名の前方一致サジェスト（/api/suggest）
+// 名前ごとのレビュー件数をメモリに持ち、入力途中の検索窓に DB を使わず候補を返す。
+// 読み取りは「正規化した名前の昇順配列」を二分探索して範囲を舐めるだけ（ロックなし）。
+// 件数の増減はその場で反映し、配列を作り直すのは新しい名前が増えたときだけ（次の読み取りで）
+@Component
+public class NameSuggester {
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 20;
+
+    // 候補1件（scope は RatingStats.COURSE / TEACHER、reviews はその名前のレビュー件数）
+    public record Suggestion(String name, String scope, long reviews) {}
+
+    // 名前1つ分（件数だけ書き換わる）
+    private static final class Name {
+        final String name;
+        final String key;
+        final String scope;
+        final AtomicLong reviews = new AtomicLong();
+
+        Name(String name, String scope) {
+            this.name = name;
+            this.key = ReviewSearchIndex.normalize(name);
+            this.scope = scope;
+        }
+    }
+
+    private static final Comparator<Name> KEY_ORDER =
+            Comparator.<Name, String>comparing(n -> n.key).thenComparing(n -> n.name);
+
+    // 件数の多い順、同数なら名前順
+    private static final Comparator<Suggestion> RANK =
+            Comparator.comparingLong(Suggestion::reviews).reversed().thenComparing(Suggestion::name);
+
+    // 授業名・教員名それぞれの辞書
+    private static final class Dictionary {
+        final String scope;
+        final Map<String, Name> byName = new ConcurrentHashMap<>();
+        volatile Name[] sorted = new Name[0];
+        volatile boolean stale;
+
+        Dictionary(String scope) {
+            this.scope = scope;
+        }
+
+        Name[] sorted() {
+            if (stale) {
+                synchronized (this) {
+                    if (stale) {
+                        // 先に下ろしておけば、並べ替え中に増えた名前は次の読み取りで拾える
+                        stale = false;
+                        Name[] names = byName.values().toArray(new Name[0]);
+                        Arrays.sort(names, KEY_ORDER);
+                        sorted = names;
+                    }
+                }
+            }
+            return sorted;
+        }
+    }
+
+    private final ReviewRepository repository;
+    private final Dictionary courses = new Dictionary(RatingStats.COURSE);
+    private final Dictionary teachers = new Dictionary(RatingStats.TEACHER);
+
+    public NameSuggester(ReviewRepository repository) {
+        this.repository = repository;
+    }
+
+    // =========================
+    // 構築・更新
+    // =========================
+    // 起動時に名前ごとの件数を読む（評価集計の作り直しと同じ group by を使う。呼ぶのは InMemoryIndexLoader）
+    public void rebuild() {
+        load(courses, repository.countByCourseNameAndRating());
+        load(teachers, repository.countByTeacherNameAndRating());
+    }
+
+    private static void load(Dictionary dictionary, List<ReviewRepository.RatingGroup> groups) {
+        Map<String, Long> totals = new HashMap<>();
+        for (ReviewRepository.RatingGroup g : groups) {
+            String name = key(g.getName());
+            if (name != null) totals.merge(name, g.getTotal(), Long::sum);
+        }
+        Map<String, Name> loaded = new HashMap<>();
+        totals.forEach((name, total) -> {
+            Name n = new Name(name, dictionary.scope);
+            n.reviews.set(total);
+            loaded.put(name, n);
+        });
+        synchronized (dictionary) {
+            dictionary.byName.clear();
+            dictionary.byName.putAll(loaded);
+            dictionary.stale = true;
+        }
+    }
+
+    // ReviewService の書き込みに合わせて件数を増減する（トランザクション中ならコミット後に）
+    public void onCreated(String courseName, String teacherName) {
+        afterCommit(() -> {
+            add(courses, courseName, 1);
+            add(teachers, teacherName, 1);
+        });
+    }
+
+    public void onDeleted(String courseName, String teacherName) {
+        afterCommit(() -> {
+            add(courses, courseName, -1);
+            add(teachers, teacherName, -1);
+        });
+    }
+
+    public void onUpdated(String oldCourse, String oldTeacher, String newCourse, String newTeacher) {
+        afterCommit(() -> {
+            add(courses, oldCourse, -1);
+            add(courses, newCourse, 1);
+            add(teachers, oldTeacher, -1);
+            add(teachers, newTeacher, 1);
+        });
+    }
+
+    // 一括取り込み：名前ごとにまとめた件数を1回で
+    public void onImported(String scope, String name, long count) {
+        Dictionary dictionary = RatingStats.TEACHER.equals(scope) ? teachers : courses;
+        afterCommit(() -> add(dictionary, name, count));
+    }
+
+    // 件数が 0 になった名前も辞書には残す（候補には出さない。次の rebuild で消える）
+    private static void add(Dictionary dictionary, String rawName, long delta) {
+        String name = key(rawName);
+        if (name == null || delta == 0) return;
+        Name n = dictionary.byName.get(name);
+        if (n == null) {
+            n = dictionary.byName.computeIfAbsent(name, k -> new Name(k, dictionary.scope));
+            dictionary.stale = true;
+        }
+        n.reviews.addAndGet(delta);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // RatingStatsService と同じ名前のそろえ方
+    private static String key(String name) {
+        if (name == null || name.isBlank()) return null;
+        return name.strip();
+    }
+
+    // =========================
+    // 候補
+    // =========================
+    // target: course / teacher / all（ReviewSearchIndex と同じ）
+    public List<Suggestion> suggest(String prefix, String target, int limit) {
+        String needle = ReviewSearchIndex.normalize(prefix);
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+
+        // 上位 k 件を残すヒープ（先頭は残す中で一番下）
+        PriorityQueue<Suggestion> heap = new PriorityQueue<>(k + 1, RANK.reversed());
+        if (!"teacher".equals(target)) {
+            collect(courses.sorted(), needle, k, heap);
+        }
+        if (!"course".equals(target)) {
+            collect(teachers.sorted(), needle, k, heap);
+        }
+
+        List<Suggestion> top = new ArrayList<>(heap);
+        top.sort(RANK);
+        return top;
+    }
+
+    private static void collect(Name[] sorted, String needle, int k, PriorityQueue<Suggestion> heap) {
+        for (int i = lowerBound(sorted, needle); i < sorted.length && sorted[i].key.startsWith(needle); i++) {
+            Name n = sorted[i];
+            long reviews = n.reviews.get();
+            if (reviews <= 0) continue;
+            heap.offer(new Suggestion(n.name, n.scope, reviews));
+            if (heap.size() > k) heap.poll();
+        }
+    }
+
+    // key >= needle になる最初の位置
+    private static int lowerBound(Name[] sorted, String needle) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].key.compareTo(needle) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int size() {
+        return courses.byName.size() + teachers.byName.size();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo;
+
+import java.io.IOException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+
+// パスワードのハッシュ待ちが溢れたとき（BoundedPasswordEncoder が投げる）
+// 登録・ログインとも 503 と Retry-After で返す（writeTo）
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // エラーページへは回さずにここで書き切る（/error はログインが要るので）
+    public void writeTo(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("混み合っています。しばらくしてからもう一度お試しください。");
+    }
+
+    // 認証の例外に包まれていても見つける
+    static PasswordHashingBusyException find(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingBusyException busy) {
+                return busy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// 仮想スレッドのピン留めを JFR の jdk.VirtualThreadPinned イベントで拾う
+// （synchronized の中や native 呼び出し中に I/O 待ちすると、キャリアスレッドごと止まる）
+// ・しきい値より長いものだけ、アプリのどのメソッドで起きたかを数えてログに出す
+// ・Java 21 未満では何もしない
+@Component
+public class PinnedThreadMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.example.demo.";
+
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private final LongAdder pinned = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final Map<String, LongAdder> byFrame = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${review.threads.pinned-diagnostics:false}") boolean enabled,
+                               @Value("${review.threads.pinned-threshold:20ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!ThreadingConfig.virtualThreadsAvailable()) {
+            log.info("Pinned-thread diagnostics need Java 21 or later (running on {})", Runtime.version());
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+    }
+
+    private void record(RecordedEvent event) {
+        String frame = frameOf(event);
+        pinned.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+        byFrame.computeIfAbsent(frame, k -> new LongAdder()).increment();
+        log.warn("Virtual thread pinned for {}ms at {}", event.getDuration().toMillis(), frame);
+    }
+
+    // アプリのコードで一番内側のフレーム（無ければ先頭）
+    private static String frameOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame f : frames) {
+            String type = f.getMethod().getType().getName();
+            if (type.startsWith(APP_PACKAGE)) {
+                return type + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+            }
+        }
+        if (frames.isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame top = frames.get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    // ThreadStatsController 用
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("monitoring", stream != null);
+        stats.put("pinned", pinned.sum());
+        stats.put("pinnedMillis", Duration.ofNanos(pinnedNanos.sum()).toMillis());
+        Map<String, Long> frames = new LinkedHashMap<>();
+        byFrame.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(20)
+                .forEach(e -> frames.put(e.getKey(), e.getValue().sum()));
+        stats.put("frames", frames);
+        return stats;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// JDBC の呼び出しを数える DataSource（QueryMetricsConfig が挟む）
+// ・実行した文の数・時間・読んだ（更新した）行数を、いまのリクエストの QueryStats に足す
+// ・遅い SQL は必ず、それ以外は sample-rate の割合でログに出す（spring.jpa.show-sql の代わり）
+public class QueryInspectingDataSource extends DelegatingDataSource {
+
+    private static final Logger sqlLog = LoggerFactory.getLogger("com.example.demo.sql");
+
+    private final long slowNanos;
+    private final double sampleRate;
+
+    public QueryInspectingDataSource(DataSource target, Duration slowThreshold, double sampleRate) {
+        super(target);
+        this.slowNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(), Connection.class, new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password), Connection.class, new ConnectionHandler());
+    }
+
+    private <T> T wrap(T target, Class<T> type, Handler handler) {
+        handler.target = target;
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private void executed(String sql, long nanos) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.statement(sql, nanos);
+        }
+        if (nanos >= slowNanos) {
+            sqlLog.warn("Slow query ({}ms): {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sqlLog.info("{}ms: {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        }
+    }
+
+    private static void rows(long n) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.rows(n);
+        }
+    }
+
+    // 共通部分（equals / hashCode と例外の取り出し）
+    private abstract static class Handler implements InvocationHandler {
+        Object target;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return handle(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ConnectionHandler extends Handler {
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = method.invoke(target, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return wrap((Statement) result, Statement.class, new StatementHandler(null));
+                case "prepareStatement":
+                    return wrap((PreparedStatement) result, PreparedStatement.class, new StatementHandler((String) args[0]));
+                case "prepareCall":
+                    return wrap((CallableStatement) result, CallableStatement.class, new StatementHandler((String) args[0]));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        private final String preparedSql;
+
+        StatementHandler(String preparedSql) {
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = method.invoke(target, args);
+                return name.equals("getResultSet") && result != null
+                        ? wrap((ResultSet) result, ResultSet.class, new ResultSetHandler())
+                        : result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } finally {
+                executed(sql, System.nanoTime() - start);
+            }
+
+            if (result instanceof ResultSet rs) {
+                return wrap(rs, ResultSet.class, new ResultSetHandler());
+            }
+            if (result instanceof Integer n && n > 0) {
+                rows(n);
+            } else if (result instanceof Long n && n > 0) {
+                rows(n);
+            } else if (result instanceof int[] counts) {
+                for (int n : counts) {
+                    if (n > 0) rows(n);
+                }
+            }
+            return result;
+        }
+    }
+
+    private final class ResultSetHandler extends Handler {
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = method.invoke(target, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows(1);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// SQL の計測（QueryInspectingDataSource を DataSource の一番外側に挟む）
+// 集計は RequestMetricsFilter → EndpointMetrics、見るのは GET /api/metrics/endpoints
+@Configuration
+public class QueryMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor queryInspection(
+            @Value("${review.sql.metrics.enabled:true}") boolean enabled,
+            @Value("${review.sql.slow-threshold:200ms}") Duration slowThreshold,
+            @Value("${review.sql.sample-rate:0.0}") double sampleRate) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof QueryInspectingDataSource)) {
+                    return new QueryInspectingDataSource(dataSource, slowThreshold, sampleRate);
+                }
+                return bean;
+            }
+        };
+    }
+}
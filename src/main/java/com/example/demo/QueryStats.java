@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 1リクエストの中で実行した SQL の集計（RequestMetricsFilter が開始・終了し、QueryInspectingDataSource が数える）
+// リクエストを処理しているスレッドだけが触るので同期しない。
+// ストリーミング応答（StreamingResponseBody）の中で流れる SQL は別スレッドなので数えない
+final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+    // プレースホルダ付きの SQL ごとの回数（パラメータ違いで同じ SQL が並ぶのが N+1 の形）
+    private final Map<String, Integer> bySql = new HashMap<>();
+
+    static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void statement(String sql, long nanos) {
+        statements++;
+        jdbcNanos += nanos;
+        if (sql != null) {
+            bySql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void rows(long n) {
+        rows += n;
+    }
+
+    int getStatements() { return statements; }
+    long getRows() { return rows; }
+    long getJdbcNanos() { return jdbcNanos; }
+
+    // threshold 回以上くり返された SQL（N+1 の疑い）
+    Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        bySql.forEach((sql, count) -> {
+            if (count >= threshold) {
+                result.put(sql, count);
+            }
+        });
+        return result;
+    }
+}
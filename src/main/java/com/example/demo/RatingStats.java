@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import jakarta.persistence.*;
+
+// 授業名ごと・教員名ごとの評価の集計（件数・合計・1〜5の度数）
+// レビューの作成・編集・削除と同じトランザクションで加減算する
+@Entity
+@Table(name = "rating_stats",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "name"}))
+public class RatingStats {
+
+    public static final String COURSE = "course";
+    public static final String TEACHER = "teacher";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 16)
+    private String scope;     // "course" か "teacher"
+
+    @Column(nullable = false)
+    private String name;
+
+    private long reviewCount;
+    private long ratingSum;
+
+    private long stars1;
+    private long stars2;
+    private long stars3;
+    private long stars4;
+    private long stars5;
+
+    public RatingStats() {
+    }
+
+    public RatingStats(String scope, String name) {
+        this.scope = scope;
+        this.name = name;
+    }
+
+    // 評価 rating のレビュー n 件分を足す（n が負なら引く）
+    public void add(int rating, long n) {
+        reviewCount += n;
+        ratingSum += rating * n;
+        switch (rating) {
+            case 1 -> stars1 += n;
+            case 2 -> stars2 += n;
+            case 3 -> stars3 += n;
+            case 4 -> stars4 += n;
+            case 5 -> stars5 += n;
+            default -> { } // 範囲外の評価は度数に入れない
+        }
+    }
+
+    public Long getId() { return id; }
+    public String getScope() { return scope; }
+    public String getName() { return name; }
+    public long getReviewCount() { return reviewCount; }
+    public long getRatingSum() { return ratingSum; }
+
+    public long[] getHistogram() {
+        return new long[] { stars1, stars2, stars3, stars4, stars5 };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface RatingStatsRepository extends JpaRepository<RatingStats, Long> {
+
+    // 平均・分布の部分一致（集計行だけを見るのでレビュー本体は読まない）
+    List<RatingStats> findByScopeAndNameContainingIgnoreCase(String scope, String name);
+
+    boolean existsByScopeAndName(String scope, String name);
+
+    // 行ロックを取って加減算する（読み出し→書き戻しをしないので同時更新でもずれない）
+    @Modifying
+    @Query("update RatingStats s set s.reviewCount = s.reviewCount + :count, "
+            + "s.ratingSum = s.ratingSum + :sum, "
+            + "s.stars1 = s.stars1 + :d1, s.stars2 = s.stars2 + :d2, s.stars3 = s.stars3 + :d3, "
+            + "s.stars4 = s.stars4 + :d4, s.stars5 = s.stars5 + :d5 "
+            + "where s.scope = :scope and s.name = :name")
+    int increment(@Param("scope") String scope, @Param("name") String name,
+                  @Param("count") long count, @Param("sum") long sum,
+                  @Param("d1") long d1, @Param("d2") long d2, @Param("d3") long d3,
+                  @Param("d4") long d4, @Param("d5") long d5);
+}
@@ -0,0 +1,198 @@
+package com.example.demo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// 授業名・教員名ごとの評価集計
+// ReviewService の書き込みと同じトランザクションの中で呼ばれる
+@Service
+public class RatingStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RatingStatsService.class);
+
+    private final RatingStatsRepository statsRepository;
+    private final ReviewRepository reviewRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public RatingStatsService(RatingStatsRepository statsRepository,
+                              ReviewRepository reviewRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.reviewRepository = reviewRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // =========================
+    // レビューの書き込みに合わせた加減算
+    // =========================
+    public void onCreated(String courseName, String teacherName, int rating) {
+        apply(RatingStats.COURSE, courseName, rating, 1);
+        apply(RatingStats.TEACHER, teacherName, rating, 1);
+    }
+
+    public void onDeleted(String courseName, String teacherName, int rating) {
+        apply(RatingStats.COURSE, courseName, rating, -1);
+        apply(RatingStats.TEACHER, teacherName, rating, -1);
+    }
+
+    // 編集：変わっていなければ何もしない
+    public void onUpdated(String oldCourse, String oldTeacher, int oldRating,
+                          String newCourse, String newTeacher, int newRating) {
+        if (oldRating != newRating || !sameName(oldCourse, newCourse)) {
+            apply(RatingStats.COURSE, oldCourse, oldRating, -1);
+            apply(RatingStats.COURSE, newCourse, newRating, 1);
+        }
+        if (oldRating != newRating || !sameName(oldTeacher, newTeacher)) {
+            apply(RatingStats.TEACHER, oldTeacher, oldRating, -1);
+            apply(RatingStats.TEACHER, newTeacher, newRating, 1);
+        }
+    }
+
+    // 一括取り込み：名前ごとにまとめた評価の件数（histogram[0] が評価1）を1回で加算する
+    public void onImported(String scope, String rawName, long[] histogram) {
+        String name = key(rawName);
+        if (name == null) return;
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < 5; i++) {
+            count += histogram[i];
+            sum += histogram[i] * (i + 1);
+        }
+        if (count == 0) return;
+
+        ensureRow(scope, name);
+        statsRepository.increment(scope, name, count, sum,
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]);
+    }
+
+    private void apply(String scope, String rawName, int rating, int sign) {
+        String name = key(rawName);
+        if (name == null) return;
+
+        if (sign > 0) {
+            ensureRow(scope, name);
+        }
+        long[] d = new long[5];
+        if (rating >= 1 && rating <= 5) {
+            d[rating - 1] = sign;
+        }
+        statsRepository.increment(scope, name, sign, (long) rating * sign,
+                d[0], d[1], d[2], d[3], d[4]);
+    }
+
+    // 初めての授業名・教員名なら集計行を作る
+    // 呼び出し元と同じトランザクション・同じ接続で。同時に作られても on conflict do nothing で1行にそろう
+    // （別トランザクションにすると、書き込み中の接続を持ったまま2本目をプールから取るので、
+    //   一斉に保存されるとプール・AdmissionDataSource の枠を取り合って詰まる）
+    // JDBC で直接書くのは、Hibernate のネイティブ SQL だと2次キャッシュが丸ごと捨てられるため
+    private void ensureRow(String scope, String name) {
+        if (statsRepository.existsByScopeAndName(scope, name)) return;
+        jdbcTemplate.update(INSERT_IF_ABSENT, scope, name);
+    }
+
+    private static final String INSERT_IF_ABSENT =
+            "insert into rating_stats (scope, name, review_count, rating_sum, stars1, stars2, stars3, stars4, stars5) "
+            + "values (?, ?, 0, 0, 0, 0, 0, 0, 0) on conflict do nothing";
+
+    private static boolean sameName(String a, String b) {
+        String ka = key(a);
+        return ka == null ? key(b) == null : ka.equals(key(b));
+    }
+
+    private static String key(String name) {
+        if (name == null || name.isBlank()) return null;
+        return name.strip();
+    }
+
+    // =========================
+    // 参照（レビュー本体は読まない）
+    // =========================
+    @Transactional(readOnly = true)
+    public RatingSummary summarize(String scope, String name) {
+        String key = key(name);
+        if (key == null) {
+            return new RatingSummary(scope, name, 0, 0, new long[5]);
+        }
+        // 名前に含む集計行を合算する（以前のレビュー本体の部分一致の平均と同じ結果。
+        // 「線形代数」なら「線形代数II」「線形代数演習」も入る。読むのは名前の数だけの集計行）
+        long count = 0;
+        long sum = 0;
+        long[] histogram = new long[5];
+        for (RatingStats s : statsRepository.findByScopeAndNameContainingIgnoreCase(scope, key)) {
+            count += s.getReviewCount();
+            sum += s.getRatingSum();
+            long[] h = s.getHistogram();
+            for (int i = 0; i < 5; i++) histogram[i] += h[i];
+        }
+        return new RatingSummary(scope, key, count, sum, histogram);
+    }
+
+    // =========================
+    // 作り直し（集計とレビュー本体の突き合わせ）
+    // =========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (statsRepository.count() == 0 && reviewRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    // 集計を読む前に rating_stats をロックして、作り直しの間の加減算を待たせる
+    // （ロックなしだと、読んだ後・消す前にコミットされた加減算が消えるか古い値で上書きされる）
+    // 待たされた書き込みは作り直しのコミット後に、作り直した行へ加算する
+    @Scheduled(cron = "${review.stats.rebuild-cron:0 30 4 * * *}")
+    public void rebuild() {
+        requiresNew.executeWithoutResult(status -> {
+            lockStats();
+            Map<String, RatingStats> rows = new HashMap<>();
+            collect(rows, RatingStats.COURSE, reviewRepository.countByCourseNameAndRating());
+            collect(rows, RatingStats.TEACHER, reviewRepository.countByTeacherNameAndRating());
+
+            statsRepository.deleteAllInBatch();
+            statsRepository.flush();
+            statsRepository.saveAll(rows.values());
+            log.info("Rebuilt {} rating stats rows", rows.size());
+        });
+    }
+
+    // PostgreSQL は表ロック（EXCLUSIVE：参照は通し、加減算・行の追加は待たせる）。
+    // H2（テスト）には LOCK TABLE が無いので、今ある行を for update で押さえる
+    private void lockStats() {
+        boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) c ->
+                c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")));
+        if (postgres) {
+            jdbcTemplate.execute("lock table rating_stats in exclusive mode");
+        } else {
+            jdbcTemplate.queryForList("select id from rating_stats for update", Long.class);
+        }
+    }
+
+    private static void collect(Map<String, RatingStats> rows, String scope,
+                                List<ReviewRepository.RatingGroup> groups) {
+        for (ReviewRepository.RatingGroup g : groups) {
+            String name = key(g.getName());
+            if (name == null) continue;
+            RatingStats s = rows.computeIfAbsent(scope + '\u0000' + name, k -> new RatingStats(scope, name));
+            s.add(g.getRating(), g.getTotal());
+        }
+    }
+}
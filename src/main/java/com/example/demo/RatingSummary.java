@@ -0,0 +1,28 @@
+package com.example.demo;
+
+// 平均評価の表示・API 用
+public class RatingSummary {
+
+    private final String scope;
+    private final String name;
+    private final long count;
+    private final long sum;
+    private final long[] histogram;
+
+    public RatingSummary(String scope, String name, long count, long sum, long[] histogram) {
+        this.scope = scope;
+        this.name = name;
+        this.count = count;
+        this.sum = sum;
+        this.histogram = histogram;
+    }
+
+    public String getScope() { return scope; }
+    public String getName() { return name; }
+    public long getCount() { return count; }
+    public long[] getHistogram() { return histogram; }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+// 読み取りをレプリカへ（review.datasource.replica-urls を設定したときだけ）
+// JPA はトランザクション開始時に接続を取るが、その時点ではまだ readOnly かどうかが接続に付いていない。
+// LazyConnectionDataSourceProxy で最初の SQL まで実際の接続を取らずにおき、
+// readOnly が付いていれば ReadReplicas の読み取り先、そうでなければプライマリから取る。
+// ・ReviewService の @Transactional(readOnly = true) と Spring Data の読み取りメソッド → レプリカ
+// ・書き込みトランザクション、その中の読み取り、JdbcTemplate の直接実行 → プライマリ
+@Configuration
+public class ReadReplicaConfig {
+
+    // AdmissionDataSource / QueryInspectingDataSource より内側（本来のプールのすぐ外）に挟む
+    // 戻り値の型で Ordered が見えないと他の BeanPostProcessor と同じ扱いになり、外側に付いてしまう
+    @Bean
+    static RoutingPostProcessor readReplicaRouting(ObjectProvider<ReadReplicas> replicas) {
+        return new RoutingPostProcessor(replicas);
+    }
+
+    static final class RoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<ReadReplicas> replicas;
+
+        RoutingPostProcessor(ObjectProvider<ReadReplicas> replicas) {
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primary) || bean instanceof LazyConnectionDataSourceProxy
+                    || bean instanceof AdmissionDataSource || bean instanceof QueryInspectingDataSource) {
+                return bean;
+            }
+            ReadReplicas r = replicas.getObject();
+            if (!r.isEnabled()) {
+                return bean;
+            }
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+            proxy.setReadOnlyDataSource(r.readOnlyDataSource(primary));
+            return proxy;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
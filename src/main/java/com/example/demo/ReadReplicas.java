@@ -0,0 +1,230 @@
+package com.example.demo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// 読み取り専用レプリカのプールと、読み取りをどこへ送るかの判断
+// ・@Transactional(readOnly = true) の接続だけがここに来る（ReadReplicaConfig）
+// ・生きていて遅れが max-lag 以内のレプリカへ順番に振る。全部だめならプライマリ
+// ・直前に書き込んだユーザーのリクエスト（ReadYourWritesFilter）はプライマリで読む
+// review.datasource.replica-urls が空なら何もしない（今までどおり全部プライマリ）
+//
+// DataSource の Bean にすると Spring Boot が本来の DataSource を作らなくなるので、ここは DataSource にしない
+@Component
+public class ReadReplicas {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicas.class);
+
+    // 受信済みの WAL を全部適用済みなら 0、そうでなければ最後に適用したトランザクションからの秒数
+    static final String POSTGRESQL_LAG_QUERY = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+            + "then 0 else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+    // このスレッドのリクエストはプライマリで読む（ReadYourWritesFilter が立てる）
+    private static final ThreadLocal<Boolean> PIN_PRIMARY = new ThreadLocal<>();
+
+    private static final class Replica {
+        final String name;
+        final HikariDataSource dataSource;
+        volatile boolean healthy = true;
+        volatile double lagSeconds;
+        final LongAdder reads = new LongAdder();
+        final LongAdder failures = new LongAdder();
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder pinnedReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReadReplicas(@Value("${review.datasource.replica-urls:}") List<String> urls,
+                        @Value("${review.datasource.replica-username:${spring.datasource.username:}}") String username,
+                        @Value("${review.datasource.replica-password:${spring.datasource.password:}}") String password,
+                        @Value("${review.datasource.replica-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                        @Value("${review.datasource.replica-max-lag:5s}") Duration maxLag,
+                        @Value("${review.datasource.replica-lag-query:}") String lagQuery) {
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery.isBlank() ? null : lagQuery;
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName("replica-" + (replicas.size() + 1));
+            ds.setJdbcUrl(url.strip());
+            ds.setUsername(username);
+            ds.setPassword(password);
+            ds.setMaximumPoolSize(poolSize);
+            ds.setReadOnly(true);
+            // 落ちているレプリカで長く待たず、すぐ次（最後はプライマリ）へ回す
+            ds.setConnectionTimeout(2000);
+            ds.setInitializationFailTimeout(-1);
+            replicas.add(new Replica(ds.getPoolName(), ds));
+        }
+    }
+
+    public boolean isEnabled() {
+        return !replicas.isEmpty();
+    }
+
+    // 読み取り専用の接続の取り先（primary は本来の DataSource）
+    public DataSource readOnlyDataSource(DataSource primary) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return route(primary);
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return route(primary);
+            }
+        };
+    }
+
+    private Connection route(DataSource primary) throws SQLException {
+        if (Boolean.TRUE.equals(PIN_PRIMARY.get())) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (!r.healthy) continue;
+            try {
+                Connection connection = r.dataSource.getConnection();
+                r.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                // 次のヘルスチェックで戻るまで外す
+                r.failures.increment();
+                markDown(r, e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    // =========================
+    // 読み取り先の固定（直前に書いたユーザー）
+    // =========================
+    public static void pinPrimary(boolean pinned) {
+        if (pinned) {
+            PIN_PRIMARY.set(Boolean.TRUE);
+        } else {
+            PIN_PRIMARY.remove();
+        }
+    }
+
+    // 直前に変わったデータを読むとき（ReviewService。レプリカがまだ追いついていないかもしれない）
+    // 呼び出し元（ReadYourWritesFilter）の設定は終わったら戻す
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = PIN_PRIMARY.get();
+        PIN_PRIMARY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                PIN_PRIMARY.remove();
+            } else {
+                PIN_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    // =========================
+    // ヘルスチェック（接続できるか・遅れが max-lag 以内か）
+    // =========================
+    @Scheduled(fixedDelayString = "${review.datasource.replica-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (Replica r : replicas) {
+            try (Connection connection = r.dataSource.getConnection()) {
+                double lag = lag(connection);
+                r.lagSeconds = lag;
+                if (lag * 1000 > maxLag.toMillis()) {
+                    markDown(r, "lag " + lag + "s");
+                } else if (!r.healthy) {
+                    r.healthy = true;
+                    log.info("Replica {} is back (lag {}s)", r.name, lag);
+                }
+            } catch (SQLException e) {
+                r.failures.increment();
+                markDown(r, e.getMessage());
+            }
+        }
+    }
+
+    private double lag(Connection connection) throws SQLException {
+        String query = lagQuery;
+        if (query == null) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+            if (!product.contains("postgres")) return 0;
+            query = POSTGRESQL_LAG_QUERY;
+        }
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(query)) {
+            return rs.next() ? rs.getDouble(1) : 0;
+        }
+    }
+
+    private void markDown(Replica r, String reason) {
+        if (r.healthy) {
+            r.healthy = false;
+            log.warn("Replica {} taken out of rotation: {}", r.name, reason);
+        }
+    }
+
+    // 集計（/api/metrics/replicas）
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("pinnedReads", pinnedReads.sum());
+        stats.put("fallbackReads", fallbackReads.sum());
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Replica r : replicas) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", r.name);
+            m.put("healthy", r.healthy);
+            m.put("lagSeconds", r.lagSeconds);
+            m.put("reads", r.reads.sum());
+            m.put("failures", r.failures.sum());
+            list.add(m);
+        }
+        stats.put("replicas", list);
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        replicas.forEach(r -> r.dataSource.close());
+    }
+}
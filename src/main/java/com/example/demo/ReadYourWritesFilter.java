@@ -0,0 +1,61 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// 書き込んだ（投稿・いいね・コメントなど GET 以外が成功した）ユーザーは、
+// しばらくのあいだ読み取りもプライマリで行う（レプリカの遅れで自分の書き込みが見えないのを防ぐ）
+// 期限はセッションに持つ。レプリカを使っていないときは何もしない
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String PRIMARY_UNTIL = ReadYourWritesFilter.class.getName() + ".primaryUntil";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadReplicas replicas;
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(ReadReplicas replicas,
+                                @Value("${review.datasource.read-your-writes:5s}") Duration window) {
+        this.replicas = replicas;
+        this.windowMillis = window.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !replicas.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        Object until = session == null ? null : session.getAttribute(PRIMARY_UNTIL);
+        ReadReplicas.pinPrimary(until instanceof Long t && t > System.currentTimeMillis());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadReplicas.pinPrimary(false);
+        }
+
+        // コミット後から数える（ログインでセッションが作り直されていても今のセッションに付ける）
+        if (!SAFE_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+            HttpSession current = request.getSession(false);
+            if (current != null) {
+                current.setAttribute(PRIMARY_UNTIL, System.currentTimeMillis() + windowMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.util.Map;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+// リクエストごとに QueryStats を用意して、終わったら EndpointMetrics に記録する
+// 同じ SQL が n-plus-one-threshold 回以上出たら N+1 の疑いとしてログに出す
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final EndpointMetrics metrics;
+    private final int nPlusOneThreshold;
+
+    public RequestMetricsFilter(EndpointMetrics metrics,
+                                @Value("${review.sql.n-plus-one-threshold:5}") int nPlusOneThreshold) {
+        this.metrics = metrics;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats queries = QueryStats.begin();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            QueryStats.end();
+            String endpoint = endpointOf(request);
+            Map<String, Integer> repeated = queries.repeated(nPlusOneThreshold);
+            if (!repeated.isEmpty()) {
+                repeated.forEach((sql, count) ->
+                        log.warn("Possible N+1 on {}: {} x {}", endpoint, count, sql));
+            }
+            metrics.record(endpoint, nanos, queries, !repeated.isEmpty());
+        }
+    }
+
+    // URL そのものではなくマッピングのパターンでまとめる（/reviews/1 と /reviews/2 は同じ）
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)");
+    }
+}
@@ -7,10 +7,19 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Transient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
+// 2次キャッシュ対象（CacheConfig）
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Review {
 
     @Id
@@ -25,6 +34,10 @@ public class Review {
     @Column
     private LocalDateTime createdAt;
 
+    // 最後に変更された日時（API の差分同期 since= に使う。いいねの加算でも更新される）
+    @Column
+    private LocalDateTime updatedAt;
+
     // ログインユーザーとの紐づけ
     @ManyToOne
     @JoinColumn(name = "user_id")
@@ -64,6 +77,10 @@ public class Review {
         return createdAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     public User getUser() {
         return user;
     }
@@ -92,7 +109,34 @@ public class Review {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    private void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
+    // DB から読んだ（最後に保存した）時点の値。編集時の評価集計の差分計算に使う
+    @Transient
+    private String loadedCourseName;
+    @Transient
+    private String loadedTeacherName;
+    @Transient
+    private Integer loadedRating;
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    private void rememberLoadedState() {
+        loadedCourseName = courseName;
+        loadedTeacherName = teacherName;
+        loadedRating = rating;
+    }
+
+    public String getLoadedCourseName() { return loadedCourseName; }
+    public String getLoadedTeacherName() { return loadedTeacherName; }
+    public Integer getLoadedRating() { return loadedRating; }
+
     // 既存フィールドの下あたりに追加
     private String imagePath;
 
@@ -103,10 +147,19 @@ public class Review {
     public void setImagePath(String imagePath) {
         this.imagePath = imagePath;
     }
+    // いいね数は LikeCounter が "likes = likes + ?" で加算する。
+    // エンティティの保存で古い値を上書きしないよう UPDATE 対象から外す
+    @Column(updatable = false)
     private int likes;
 
     public int getLikes() { return likes; }
     public void setLikes(int likes) { this.likes = likes; }
-    public void incrementLikes() { this.likes++; }
+
+    // 注目順のスコア。投稿時に入れたあとは TrendingScorer が直接書き換えるので、これも UPDATE 対象から外す
+    @Column(updatable = false)
+    private int trendingScore;
+
+    public int getTrendingScore() { return trendingScore; }
+    public void setTrendingScore(int trendingScore) { this.trendingScore = trendingScore; }
 
 }
@@ -1,36 +1,221 @@
 package com.example.demo;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
 
 @RestController
 @RequestMapping("/api/reviews")
 public class ReviewApiController {
 
+    public static final String NDJSON = "application/x-ndjson";
+
+    // 次回の since に使う時刻。書き込み途中のトランザクションを取りこぼさないよう少し戻しておく
+    static final String SYNC_HEADER = "X-Sync-Since";
+    private static final Duration SYNC_GRACE = Duration.ofMinutes(1);
+
+    // 何件ごとにクライアントへ送り出すか
+    private static final int FLUSH_EVERY = 100;
+
     private final ReviewService service;
+    private final ObjectMapper objectMapper;
+    private final ReviewImporter importer;
+    private final ReviewETags etags;
+    private final ReviewEvents events;
+    private final UserRepository userRepository;
+
+    // コメント投稿の本文（parentId があれば返信）
+    public record NewComment(String content, String university, String faculty, String department, Long parentId) {}
 
-    public ReviewApiController(ReviewService service) {
+    public ReviewApiController(ReviewService service, ObjectMapper objectMapper, ReviewImporter importer,
+                               ReviewETags etags, ReviewEvents events, UserRepository userRepository) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.importer = importer;
+        this.etags = etags;
+        this.events = events;
+        this.userRepository = userRepository;
+    }
+
+    // 全件取得（JSON 配列を1件ずつ書き出す）
+    //   cursor: 前回受け取った最後の id（その次から）
+    //   since:  この時刻以降に変更されたものだけ（前回のレスポンスの X-Sync-Since を渡す）
+    //   limit:  最大件数（0 は無制限）
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> list(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(defaultValue = "0") int cursor,
+            @RequestParam(defaultValue = "0") int limit) {
+        return stream(MediaType.APPLICATION_JSON, since, cursor, limit);
+    }
+
+    // 同じ内容を NDJSON（1行1件）で
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> listNdjson(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(defaultValue = "0") int cursor,
+            @RequestParam(defaultValue = "0") int limit) {
+        return stream(MediaType.parseMediaType(NDJSON), since, cursor, limit);
     }
 
-    // 全件取得
-    @GetMapping
-    public List<Review> list() {
-        return service.getAll();
+    private ResponseEntity<StreamingResponseBody> stream(MediaType type, LocalDateTime since, int cursor, int limit) {
+        LocalDateTime syncPoint = LocalDateTime.now().minus(SYNC_GRACE);
+        boolean array = MediaType.APPLICATION_JSON.equals(type);
+
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = open(out, array)) {
+                int[] written = { 0 };
+                service.streamAll(since, Math.max(cursor, 0), Math.max(limit, 0), dto -> {
+                    writer.write(dto);
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header(SYNC_HEADER, syncPoint.toString())
+                .body(body);
+    }
+
+    private SequenceWriter open(OutputStream out, boolean array) {
+        return array
+                ? objectMapper.writer().writeValuesAsArray(out)
+                : objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
     }
 
     // 新規作成
     @PostMapping
-    public Review create(@RequestBody Review review) {
+    public ReviewDto create(@RequestBody Review review) {
         service.save(review);
-        return review;
+        return ReviewDto.from(review);
     }
 
-    // 1件取得
+    // 一括取り込み（CSV は1行目が列名、NDJSON は1行1件）
+    // 列: courseName, teacherName, rating, comment, imagePath, likes, createdAt, userEmail
+    // 応答は NDJSON で、エラー行と進み具合をバッチごとに流し、最後に type=done を1行
+    // 管理者（ROLE_ADMIN）だけ（SecurityConfig）
+    @PostMapping(value = "/import", consumes = { "text/csv", NDJSON })
+    public void importReviews(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        Reader reader = new InputStreamReader(request.getInputStream(), charset);
+        ImportRowReader rows = request.getContentType().startsWith("text/csv")
+                ? ImportRowReader.csv(reader)
+                : ImportRowReader.ndjson(reader, objectMapper);
+
+        response.setContentType(NDJSON);
+        try (SequenceWriter writer = open(response.getOutputStream(), false)) {
+            importer.importRows(rows, new ReviewImporter.Listener() {
+                @Override
+                public void onError(ImportError error) {
+                    writer.write(error);
+                }
+
+                @Override
+                public void onProgress(ImportProgress progress) {
+                    writer.write(progress);
+                    writer.flush();
+                }
+            });
+        }
+    }
+
+    // 評価の集計（授業名 or 教員名）
+    @GetMapping("/stats")
+    public RatingSummary stats(@RequestParam(required = false) String course,
+                               @RequestParam(required = false) String teacher) {
+        if (course != null) {
+            return service.getCourseSummary(course);
+        }
+        return service.getTeacherSummary(teacher);
+    }
+
+    // 1件取得（If-None-Match が一致すれば 304）
     @GetMapping("/{id}")
-    public Review get(@PathVariable Integer id) {
-        return service.getById(id);
+    public ReviewDto get(@PathVariable Integer id, ServletWebRequest request) {
+        if (etags.notModified(request, etags.review(id))) {
+            return null;
+        }
+        return ReviewDto.from(service.getById(id));
+    }
+
+    // いいね（一覧のボタンから。ページを読み直さずに数字だけ書き換える。無い id は 404）
+    @PostMapping("/{id}/like")
+    public Map<String, Integer> like(@PathVariable Integer id) {
+        return Map.of("id", id, "likes", service.like(id));
+    }
+
+    // コメント・返信。応答は開いているページに送るのと同じ形（差し込む HTML 付き）
+    @PostMapping("/{id}/comments")
+    public ResponseEntity<ReviewEvents.CommentAdded> comment(@PathVariable Integer id, @RequestBody NewComment body,
+                                                             @AuthenticationPrincipal LoginUser user) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (isBlank(body.content()) || isBlank(body.university())
+                || isBlank(body.faculty()) || isBlank(body.department())) {
+            return ResponseEntity.badRequest().build();
+        }
+        Review review = service.getForUpdate(id);
+        User author = userRepository.getReferenceById(user.getId());
+        CommentView added;
+        if (body.parentId() == null) {
+            added = service.addComment(review, author, body.content(),
+                    body.university(), body.faculty(), body.department());
+        } else {
+            Comment parent = service.getCommentById(body.parentId());
+            if (!parent.getReview().getId().equals(id)) {
+                return ResponseEntity.badRequest().build();
+            }
+            added = service.addReply(review, parent, author, body.content(),
+                    body.university(), body.faculty(), body.department());
+        }
+        return ResponseEntity.ok(events.render(id, body.parentId(), added));
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    // ライブ更新（ids: 表示中のレビュー id、カンマ区切り）。接続が多すぎれば 503
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = events.subscribe(ids);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        return ResponseEntity.ok().body(emitter);
     }
 
     // 削除
@@ -0,0 +1,67 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+
+// 一覧のカード表示に必要な列だけを持つ読み取り専用の DTO
+// User（パスワードハッシュ等）は読まず、コメントは先頭だけ
+public class ReviewCard {
+
+    public static final int PREVIEW_LENGTH = 120;
+
+    private final Integer id;
+    private final String courseName;
+    private final String teacherName;
+    private final int rating;
+    private final int likes;
+    private final LocalDateTime createdAt;
+    private final String imagePath;
+    private final String commentPreview;
+    private final Long ownerId;
+    private final int trendingScore;
+
+    // comment は PREVIEW_LENGTH + 1 文字まで切り出したものを受け取る（はみ出したら「…」を付ける）
+    public ReviewCard(Integer id, String courseName, String teacherName, int rating, int likes,
+                      LocalDateTime createdAt, String imagePath, String comment, Long ownerId,
+                      int trendingScore) {
+        this.id = id;
+        this.courseName = courseName;
+        this.teacherName = teacherName;
+        this.rating = rating;
+        this.likes = likes;
+        this.createdAt = createdAt;
+        this.imagePath = imagePath;
+        this.commentPreview = comment != null && comment.length() > PREVIEW_LENGTH
+                ? comment.substring(0, PREVIEW_LENGTH) + "…"
+                : comment;
+        this.ownerId = ownerId;
+        this.trendingScore = trendingScore;
+    }
+
+    private ReviewCard(ReviewCard base, int likes) {
+        this.id = base.id;
+        this.courseName = base.courseName;
+        this.teacherName = base.teacherName;
+        this.rating = base.rating;
+        this.likes = likes;
+        this.createdAt = base.createdAt;
+        this.imagePath = base.imagePath;
+        this.commentPreview = base.commentPreview;
+        this.ownerId = base.ownerId;
+        this.trendingScore = base.trendingScore;
+    }
+
+    public ReviewCard withLikes(int likes) {
+        return likes == this.likes ? this : new ReviewCard(this, likes);
+    }
+
+    public Integer getId() { return id; }
+    public String getCourseName() { return courseName; }
+    public String getTeacherName() { return teacherName; }
+    public int getRating() { return rating; }
+    public int getLikes() { return likes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public String getImagePath() { return imagePath; }
+    public String getCommentPreview() { return commentPreview; }
+    public Long getOwnerId() { return ownerId; }
+    public int getTrendingScore() { return trendingScore; }
+}
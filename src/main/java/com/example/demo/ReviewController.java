@@ -1,17 +1,13 @@
 package com.example.demo;
 
-import java.util.List;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.multipart.MultipartFile;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.io.IOException;
-import java.util.UUID;
 
 
 @Controller
@@ -19,31 +15,67 @@ public class ReviewController {
 
     private final ReviewService service;
     private final UserRepository userRepository;
+    private final ImageStore imageStore;
+    private final ReviewVersions versions;
+    private final ReviewFragments fragments;
+    private final ReviewETags etags;
 
-    public ReviewController(ReviewService service, UserRepository userRepository) {
+    public ReviewController(ReviewService service, UserRepository userRepository, ImageStore imageStore,
+                            ReviewVersions versions, ReviewFragments fragments, ReviewETags etags) {
         this.service = service;
         this.userRepository = userRepository;
+        this.imageStore = imageStore;
+        this.versions = versions;
+        this.fragments = fragments;
+        this.etags = etags;
     }
 
-    // ▼ 追加：現在ログイン中の User を取得するメソッド
-    private User getCurrentUser() {
+    // ▼ 現在ログイン中のユーザー（Principal から取るので DB には行かない）
+    private LoginUser getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth.getPrincipal() instanceof LoginUser loginUser) {
+            return loginUser;
+        }
+        // 以前の形式の Principal が入った古いセッション向け
         String email = auth.getName(); // username = email
         return userRepository.findByEmail(email)
+                .map(LoginUser::from)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
     }
 
+    // エンティティの関連にセットする用（SELECT しない参照プロキシ）
+    private User getCurrentUserReference() {
+        return userRepository.getReferenceById(getCurrentUser().getId());
+    }
+
+    private boolean isOwner(Integer reviewId) {
+        Long ownerId = service.getOwnerId(reviewId);
+        return ownerId != null && ownerId.equals(getCurrentUser().getId());
+    }
+
     // 一覧表示
     @GetMapping("/reviews")
     public String listReviews(
             @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "target", defaultValue = "all") String target,
             @RequestParam(name = "sort", defaultValue = "recent") String sort,
-            Model model
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + ReviewService.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest request
     ) {
-        List<Review> reviews = service.search(keyword, target, sort);
-
-        model.addAttribute("reviews", reviews);
+        // 前回から何も変わっていなければ 304（検索も描画もしない）
+        if (etags.notModified(request, etags.list())) {
+            return null;
+        }
+        // 読む前のバージョンを覚えておく（読んでいる間に変わったカードはキャッシュしない）
+        long seen = versions.global();
+        CursorPage<ReviewCard> page = service.search(keyword, target, sort, cursor, size);
+
+        model.addAttribute("reviews", page.getItems());
+        model.addAttribute("cards", fragments.cards(page.getItems(), seen));
+        model.addAttribute("page", page);
+        model.addAttribute("size", size);
         model.addAttribute("keyword", keyword);
         model.addAttribute("target", target);
         model.addAttribute("sort", sort);
@@ -68,10 +100,8 @@ public class ReviewController {
             @RequestParam String comment,
             @RequestParam(name = "imageFile", required = false) MultipartFile imageFile
     ) {
-        User user = getCurrentUser();
-
         Review review = new Review(courseName, teacherName, rating, comment);
-        review.setUser(user);
+        review.setUser(getCurrentUserReference());
 
         // ★ 画像があれば保存。エラーが出てもレビューは保存する。
         if (imageFile != null && !imageFile.isEmpty()) {
@@ -91,10 +121,7 @@ public class ReviewController {
     // クラスの中に追記
     @PostMapping("/reviews/{id}/delete")
     public String deleteReview(@PathVariable Integer id) {
-        User current = getCurrentUser();
-        Review review = service.getById(id);
-
-        if (!review.getUser().getId().equals(current.getId())) {
+        if (!isOwner(id)) {
             return "redirect:/reviews?forbidden";
         }
 
@@ -120,13 +147,11 @@ public class ReviewController {
             @RequestParam(name = "imageFile", required = false) MultipartFile imageFile
     ) throws IOException {
 
-        User current = getCurrentUser();
-        Review review = service.getById(id);
-
-        if (!review.getUser().getId().equals(current.getId())) {
+        if (!isOwner(id)) {
             return "redirect:/reviews?forbidden";
         }
 
+        Review review = service.getForUpdate(id);
         review.setCourseName(courseName);
         review.setTeacherName(teacherName);
         review.setRating(rating);
@@ -144,49 +169,22 @@ public class ReviewController {
 
     @GetMapping("/reviews/average")
     public String showAverage(@RequestParam String courseName, Model model) {
-        double avg = service.getAverage(courseName);
+        RatingSummary summary = service.getCourseSummary(courseName);
         model.addAttribute("courseName", courseName);
-        model.addAttribute("average", avg);
+        model.addAttribute("average", summary.getAverage());
+        model.addAttribute("summary", summary);
         return "average";
     }
     @GetMapping("/me")
     public String myPage(Model model) {
-        User user = getCurrentUser();
+        LoginUser user = getCurrentUser();
         model.addAttribute("user", user);
-        model.addAttribute("reviews", service.getByUser(user));
+        model.addAttribute("reviews", service.getByUserId(user.getId()));
         return "me";
     }
+    // 保存はハッシュを取りながら1回流すだけ。縮小版はバックグラウンドで作られる
     private String saveImage(MultipartFile imageFile) throws IOException {
-        // ファイルが空なら何もしない
-        if (imageFile == null || imageFile.isEmpty()) {
-            return null;
-        }
-
-        // プロジェクト直下に uploads フォルダを作る
-        Path uploadDir = Paths.get("uploads").toAbsolutePath().normalize();
-        Files.createDirectories(uploadDir);
-
-        // 元ファイル名から拡張子だけもらう
-        String originalFilename = imageFile.getOriginalFilename();
-        String ext = "";
-        if (originalFilename != null) {
-            int dot = originalFilename.lastIndexOf(".");
-            if (dot != -1) {
-                ext = originalFilename.substring(dot); // .png, .jpg など
-            }
-        }
-
-        // ランダムなファイル名を作成
-        String filename = UUID.randomUUID().toString() + ext;
-
-        // 保存先パス
-        Path target = uploadDir.resolve(filename);
-
-        // ファイルを保存
-        imageFile.transferTo(target.toFile());
-
-        // ブラウザからアクセスするときのパスを返す
-        return "/uploads/" + filename;
+        return imageStore.store(imageFile);
     }
 
     @PostMapping("/reviews/{id}/like")
@@ -196,10 +194,16 @@ public class ReviewController {
     }
     // レビュー詳細＆コメント一覧
     @GetMapping("/reviews/{id}")
-    public String showDetail(@PathVariable Integer id, Model model) {
-        Review review = service.getById(id);
-        model.addAttribute("review", review);
-        model.addAttribute("comments", service.getComments(review));
+    public String showDetail(@PathVariable Integer id, Model model, ServletWebRequest request) {
+        if (etags.notModified(request, etags.review(id))) {
+            return null;
+        }
+        long seen = versions.global();
+        // キャッシュが新しければレビューもコメントも読まない
+        ReviewFragments.Detail detail = fragments.detail(id, seen,
+                () -> service.getById(id), service::getComments);
+        model.addAttribute("reviewId", id);
+        model.addAttribute("detail", detail);
         return "review-detail";
     }
 
@@ -210,8 +214,8 @@ public class ReviewController {
                              @RequestParam String university,
                              @RequestParam String faculty,
                              @RequestParam String department) {
-        User user = getCurrentUser();
-        Review review = service.getById(id);
+        User user = getCurrentUserReference();
+        Review review = service.getForUpdate(id);
         service.addComment(review, user, content, university, faculty, department);
         return "redirect:/reviews/" + id;
     }
@@ -224,8 +228,8 @@ public class ReviewController {
                            @RequestParam String university,
                            @RequestParam String faculty,
                            @RequestParam String department) {
-        User user = getCurrentUser();
-        Review review = service.getById(id);
+        User user = getCurrentUserReference();
+        Review review = service.getForUpdate(id);
         Comment parent = service.getCommentById(commentId);
         if (!parent.getReview().getId().equals(review.getId())) {
             return "redirect:/reviews/" + id;
@@ -237,14 +241,14 @@ public class ReviewController {
     public String byCourse(@RequestParam String name, Model model) {
         model.addAttribute("reviews", service.getByCourseName(name));
         model.addAttribute("filterTitle", "授業名: " + name);
-        return "reviews-filter";
+        return "review-filter";
     }
 
     @GetMapping("/reviews/by-teacher")
     public String byTeacher(@RequestParam String name, Model model) {
         model.addAttribute("reviews", service.getByTeacherName(name));
         model.addAttribute("filterTitle", "教員: " + name);
-        return "reviews-filter";
+        return "review-filter";
     }
 
 }
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 一覧ページの「どこから続きを読むか」を表すカーソル
+// 中身は (並び順, 向き, 最後に表示した行のキー) で、URL には Base64 の不透明な文字列として載せる
+public final class ReviewCursor {
+
+    private static final String VERSION = "v1";
+
+    private final String sortKey;
+    private final boolean forward;
+    private final Map<String, Integer> keys;
+
+    public ReviewCursor(String sortKey, boolean forward, Map<String, Integer> keys) {
+        this.sortKey = sortKey;
+        this.forward = forward;
+        this.keys = keys;
+    }
+
+    // 並び順ごとの第1キー（"recent" は id だけ）
+    public static String primaryKey(String sortKey) {
+        return switch (sortKey) {
+            case "rating", "likes" -> sortKey;
+            case "trending" -> "trendingScore";
+            default -> null;
+        };
+    }
+
+    // この並び順のカーソルとして使えるか（別の並び順のものや、キーが欠けたものは使わない）
+    public boolean matches(String sortKey) {
+        String primary = primaryKey(sortKey);
+        return this.sortKey.equals(sortKey)
+                && keys.containsKey("id")
+                && (primary == null || keys.containsKey(primary));
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isForward() {
+        return forward;
+    }
+
+    public Map<String, Integer> getKeys() {
+        return keys;
+    }
+
+    // =========================
+    // 文字列との相互変換
+    // =========================
+    public String encode() {
+        StringBuilder sb = new StringBuilder()
+                .append(VERSION).append('|')
+                .append(forward ? 'n' : 'p').append('|')
+                .append(sortKey).append('|');
+        boolean first = true;
+        for (Map.Entry<String, Integer> e : keys.entrySet()) {
+            if (!first) sb.append(',');
+            sb.append(e.getKey()).append('=').append(e.getValue());
+            first = false;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 壊れた・改ざんされたカーソルは null（＝先頭ページ扱い）
+    public static ReviewCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0]) || parts[3].isEmpty()) {
+                return null;
+            }
+            boolean forward = switch (parts[1]) {
+                case "n" -> true;
+                case "p" -> false;
+                default -> throw new IllegalArgumentException(parts[1]);
+            };
+            Map<String, Integer> keys = new LinkedHashMap<>();
+            for (String pair : parts[3].split(",")) {
+                int eq = pair.indexOf('=');
+                keys.put(pair.substring(0, eq), Integer.valueOf(pair.substring(eq + 1)));
+            }
+            return new ReviewCursor(parts[2], forward, keys);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+
+// API で返すレビュー（エンティティをそのまま JSON にしない）
+// 投稿者は id だけ持ち、User（パスワードハッシュ等）は含めない
+public class ReviewDto {
+
+    private final Integer id;
+    private final String courseName;
+    private final String teacherName;
+    private final int rating;
+    private final int likes;
+    private final String comment;
+    private final String imagePath;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final Long userId;
+
+    public ReviewDto(Integer id, String courseName, String teacherName, int rating, int likes,
+                     String comment, String imagePath, LocalDateTime createdAt, LocalDateTime updatedAt,
+                     Long userId) {
+        this.id = id;
+        this.courseName = courseName;
+        this.teacherName = teacherName;
+        this.rating = rating;
+        this.likes = likes;
+        this.comment = comment;
+        this.imagePath = imagePath;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.userId = userId;
+    }
+
+    public static ReviewDto from(Review r) {
+        return new ReviewDto(r.getId(), r.getCourseName(), r.getTeacherName(), r.getRating(), r.getLikes(),
+                r.getComment(), r.getImagePath(), r.getCreatedAt(), r.getUpdatedAt(),
+                r.getUser() == null ? null : r.getUser().getId());
+    }
+
+    public ReviewDto withLikes(int likes) {
+        return likes == this.likes ? this : new ReviewDto(id, courseName, teacherName, rating, likes,
+                comment, imagePath, createdAt, updatedAt, userId);
+    }
+
+    public Integer getId() { return id; }
+    public String getCourseName() { return courseName; }
+    public String getTeacherName() { return teacherName; }
+    public int getRating() { return rating; }
+    public int getLikes() { return likes; }
+    public String getComment() { return comment; }
+    public String getImagePath() { return imagePath; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public Long getUserId() { return userId; }
+}
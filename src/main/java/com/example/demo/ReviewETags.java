@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// 一覧・詳細・API の ETag（ReviewVersions の連番から作るので、DB を読む前に決まる）
+// ・If-None-Match が一致すれば 304 を返し、検索もテンプレートの描画もしない
+// ・起動ごとに連番が 0 から始まるので起動時刻を混ぜる。縮小版ができると画像の URL が変わるので ImageStore の世代も混ぜる
+// ・ページにユーザーごとの内容は無いのでユーザーは混ぜない（入れるならここに足す）
+// ・変わった直後（ReviewVersions#settled が false）は ETag を付けない。レプリカの古い内容に
+//   新しい ETag を付けると、次に変わるまで 304 でそれを使わせ続けてしまう
+// 弱い ETag にしているのは圧縮のため（Tomcat は強い ETag の付いた応答を圧縮しない。
+// gzip とそのままではバイト列が違うので、強い ETag なら別の値にしないといけない）
+@Component
+public class ReviewETags {
+
+    // ブラウザには持たせるが、毎回 If-None-Match で確かめさせる（Spring Security の no-store を上書き）
+    private static final String REVALIDATE = "private, no-cache";
+
+    private final ReviewVersions versions;
+    private final ImageStore imageStore;
+    private final boolean enabled;
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder unsettled = new LongAdder();
+
+    public ReviewETags(ReviewVersions versions, ImageStore imageStore,
+                       @Value("${review.etag.enabled:true}") boolean enabled) {
+        this.versions = versions;
+        this.imageStore = imageStore;
+        this.enabled = enabled;
+    }
+
+    // 一覧（どのレビューが変わっても、並び順が変わっても進む）。変わった直後は null
+    public String list() {
+        return versions.globalSettled() ? etag("g" + versions.global()) : null;
+    }
+
+    // レビュー1件（本体・コメント・いいね数）。変わった直後は null
+    public String review(Integer id) {
+        return versions.settled(id) ? etag("r" + id + "-" + versions.latest(id)) : null;
+    }
+
+    private String etag(String version) {
+        return "W/\"" + boot + "." + version + "." + imageStore.generation() + "\"";
+    }
+
+    // true なら 304 を書いたので、呼び出し側は何も読まずに null を返す
+    public boolean notModified(ServletWebRequest request, String etag) {
+        if (!enabled) {
+            return false;
+        }
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE);
+        if (etag == null) {
+            unsettled.increment();
+            return false;
+        }
+        checked.increment();
+        if (request.checkNotModified(etag)) {
+            notModified.increment();
+            return true;
+        }
+        return false;
+    }
+
+    // 集計（/api/metrics/etags）
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("checked", checked.sum());
+        stats.put("notModified", notModified.sum());
+        stats.put("unsettled", unsettled.sum());
+        return stats;
+    }
+}
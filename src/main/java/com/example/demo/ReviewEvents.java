@@ -0,0 +1,341 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// 一覧・詳細ページへのライブ更新（Server-Sent Events）
+// ・ページは表示中のレビュー id を指定して /api/reviews/events に繋ぐ
+// ・変更はすぐには送らず、接続ごとに溜めて flush-interval-ms ごとにまとめて送る
+//   いいね数は同じレビューなら最新の値で上書き（何回押されても1回分）、コメントは描画済み HTML を順に
+// ・送信中（遅いクライアント）の接続には次を送らずに溜め続ける。コメントが max-pending を超えたら
+//   捨てて resync を送る（ページ側で読み直す）
+// ・emitter.send は相手が読まないと書き込みで止まる。1回の送信が send-timeout を超えたら接続を外し、
+//   止まったままの送信スレッドの代わりに1本足す。遅いクライアントで他の接続の送信が待たされない。
+//   送信中は emitter がロックを持っていて外からは閉じられないので、書き込みが戻ってきたところで閉じて1本減らす
+//   （読まない相手への書き込みは Tomcat の connection-timeout で失敗して戻る）
+// ・同時接続数は max-streams まで。超えたら 503（ページは普通の POST / リダイレクトのまま動く）
+// ※ メモリ上の接続なのでアプリを複数台で動かす場合は、同じ台に来た変更だけが届く
+@Component
+public class ReviewEvents {
+
+    // 1接続で見られるレビューの数（一覧1ページ分）
+    static final int MAX_REVIEWS_PER_STREAM = ReviewService.MAX_PAGE_SIZE;
+
+    // 新しいコメント（詳細ページに差し込む）。parentId があれば返信
+    public record CommentAdded(Integer reviewId, Long id, Long parentId, String html) {}
+
+    private final class Stream {
+        final SseEmitter emitter;
+        final Set<Integer> reviewIds;
+
+        // ここから下は synchronized (this) で触る
+        final Map<Integer, Integer> likes = new LinkedHashMap<>();
+        final ArrayDeque<CommentAdded> comments = new ArrayDeque<>();
+        boolean resync;
+        boolean sending;
+        boolean writing;
+        boolean stalled;
+        long writingSinceNanos;
+        long lastSentNanos = System.nanoTime();
+
+        Stream(SseEmitter emitter, Set<Integer> reviewIds) {
+            this.emitter = emitter;
+            this.reviewIds = reviewIds;
+        }
+
+        synchronized void like(Integer reviewId, int count) {
+            likes.put(reviewId, count);
+        }
+
+        synchronized void comment(CommentAdded comment) {
+            if (resync) {
+                return;
+            }
+            if (comments.size() >= maxPending) {
+                comments.clear();
+                resync = true;
+                dropped.increment();
+                return;
+            }
+            comments.add(comment);
+        }
+
+        // 送るものがあれば（または無音が続いたら）送信を1回だけ予約する
+        synchronized boolean claim(long now) {
+            if (sending) {
+                return false;
+            }
+            boolean idle = now - lastSentNanos >= heartbeatNanos;
+            if (likes.isEmpty() && comments.isEmpty() && !resync && !idle) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        // 書き込みを始めてから send-timeout を超えて戻ってこなければ true（1回だけ）
+        // キューで順番を待っている間は数えない
+        synchronized boolean stall(long now) {
+            if (!writing || stalled || now - writingSinceNanos < sendTimeoutNanos) {
+                return false;
+            }
+            stalled = true;
+            return true;
+        }
+
+        void send() {
+            Map<Integer, Integer> likeBatch;
+            List<CommentAdded> commentBatch;
+            boolean resyncNow;
+            synchronized (this) {
+                likeBatch = likes.isEmpty() ? Map.of() : new LinkedHashMap<>(likes);
+                commentBatch = comments.isEmpty() ? List.of() : new ArrayList<>(comments);
+                resyncNow = resync;
+                likes.clear();
+                comments.clear();
+                resync = false;
+                writing = true;
+                writingSinceNanos = System.nanoTime();
+            }
+            try {
+                if (resyncNow) {
+                    emitter.send(SseEmitter.event().name("resync").data(""));
+                }
+                if (!likeBatch.isEmpty()) {
+                    emitter.send(SseEmitter.event().name("likes").data(likeBatch, MediaType.APPLICATION_JSON));
+                }
+                for (CommentAdded c : commentBatch) {
+                    emitter.send(SseEmitter.event().name("comment").data(c, MediaType.APPLICATION_JSON));
+                }
+                if (likeBatch.isEmpty() && commentBatch.isEmpty() && !resyncNow) {
+                    // 切れた接続を見つけるためのコメント行（ブラウザ側ではイベントにならない）
+                    emitter.send(SseEmitter.event().comment("ping"));
+                }
+                sent.add(likeBatch.size() + commentBatch.size());
+            } catch (IOException | IllegalStateException e) {
+                // 閉じられた接続（onError / onCompletion でも外れるが、次の flush で拾わないようここでも外す）
+                remove(this);
+            } finally {
+                boolean wasStalled;
+                synchronized (this) {
+                    sending = false;
+                    writing = false;
+                    lastSentNanos = System.nanoTime();
+                    wasStalled = stalled;
+                }
+                if (wasStalled) {
+                    emitter.complete();
+                    resizeSenders(-1);
+                }
+            }
+        }
+    }
+
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<Stream>> byReview = new ConcurrentHashMap<>();
+    private final ReviewFragments fragments;
+    private final ThreadPoolExecutor senders;
+    private final int baseSenders;
+    private int spareSenders;
+    private final int maxStreams;
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final long heartbeatNanos;
+    private final long sendTimeoutNanos;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+
+    public ReviewEvents(ReviewFragments fragments,
+                        @Value("${review.events.max-streams:500}") int maxStreams,
+                        @Value("${review.events.max-pending:50}") int maxPending,
+                        @Value("${review.events.senders:2}") int senders,
+                        @Value("${review.events.timeout:10m}") Duration timeout,
+                        @Value("${review.events.heartbeat:30s}") Duration heartbeat,
+                        @Value("${review.events.send-timeout:5s}") Duration sendTimeout) {
+        this.fragments = fragments;
+        this.maxStreams = maxStreams;
+        this.maxPending = Math.max(1, maxPending);
+        this.timeoutMillis = timeout.toMillis();
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.baseSenders = senders;
+
+        // 1接続につき送信中は1つだけなので、キューに入るのは最大でも接続数まで
+        AtomicInteger seq = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senders, senders, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "review-events-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    // 接続を受け付ける。上限に達していれば null
+    public SseEmitter subscribe(Collection<Integer> reviewIds) {
+        if (streams.size() >= maxStreams) {
+            rejected.increment();
+            return null;
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Integer id : reviewIds) {
+            if (id != null && ids.size() < MAX_REVIEWS_PER_STREAM) {
+                ids.add(id);
+            }
+        }
+
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Stream stream = new Stream(emitter, Set.copyOf(ids));
+        streams.add(stream);
+        for (Integer id : stream.reviewIds) {
+            // 空になった集合を remove が外すのと競合しないよう、追加も compute の中で
+            byReview.compute(id, (k, set) -> {
+                Set<Stream> s = set != null ? set : ConcurrentHashMap.newKeySet();
+                s.add(stream);
+                return s;
+            });
+        }
+        emitter.onCompletion(() -> remove(stream));
+        emitter.onTimeout(() -> remove(stream));
+        emitter.onError(e -> remove(stream));
+        return emitter;
+    }
+
+    // テストで送信が止まる接続を作るために差し替える
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private boolean remove(Stream stream) {
+        if (!streams.remove(stream)) {
+            return false;
+        }
+        for (Integer id : stream.reviewIds) {
+            byReview.computeIfPresent(id, (k, set) -> {
+                set.remove(stream);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        return true;
+    }
+
+    // =========================
+    // 変更の受け付け（ReviewService から）
+    // =========================
+    // いいねはメモリ上で数えるのでその場で、コメントはコミット後に流す
+    public void liked(Integer reviewId, int likes) {
+        Set<Stream> targets = byReview.get(reviewId);
+        if (targets != null) {
+            targets.forEach(s -> s.like(reviewId, likes));
+        }
+    }
+
+    public void commented(Integer reviewId, Long parentId, CommentView comment) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(reviewId, parentId, comment);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(reviewId, parentId, comment);
+            }
+        });
+    }
+
+    private void publish(Integer reviewId, Long parentId, CommentView comment) {
+        Set<Stream> targets = byReview.get(reviewId);
+        if (targets == null) {
+            return;
+        }
+        // 開いている人がいるときだけ、1回だけ描画して全員に配る
+        CommentAdded event = render(reviewId, parentId, comment);
+        targets.forEach(s -> s.comment(event));
+    }
+
+    // ページに差し込む形（JSON のコメント投稿の応答にも使う）
+    public CommentAdded render(Integer reviewId, Long parentId, CommentView comment) {
+        return new CommentAdded(reviewId, comment.getId(), parentId, fragments.comment(comment, parentId != null));
+    }
+
+    // =========================
+    // まとめて送る
+    // =========================
+    @Scheduled(fixedDelayString = "${review.events.flush-interval-ms:250}")
+    public void flush() {
+        long now = System.nanoTime();
+        for (Stream stream : streams) {
+            if (stream.stall(now)) {
+                // 書き込みで止まっている接続はもう送らない。止まっているスレッドの分を足して、他の接続の送信を待たせない
+                stalls.increment();
+                remove(stream);
+                resizeSenders(1);
+            } else if (stream.claim(now)) {
+                senders.execute(stream::send);
+            }
+        }
+    }
+
+    // 止まった送信は外した接続のもの（1接続に1つ）なので、足す数は多くても max-streams まで
+    private synchronized void resizeSenders(int delta) {
+        spareSenders += delta;
+        int size = baseSenders + spareSenders;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    // 集計（/api/metrics/events）
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("streams", streams.size());
+        stats.put("maxStreams", maxStreams);
+        stats.put("watchedReviews", byReview.size());
+        stats.put("rejected", rejected.sum());
+        stats.put("deltasSent", sent.sum());
+        stats.put("resyncs", dropped.sum());
+        stats.put("stalled", stalls.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Stream stream : streams) {
+            if (remove(stream)) {
+                stream.emitter.complete();
+            }
+        }
+        senders.shutdownNow();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+// 描画済み HTML のキャッシュ（一覧のカード本文・詳細ページのレビュー本体とコメント）
+// ・キーはレビュー id、値は描画したときの ReviewVersions のバージョンと HTML
+// ・バージョンが進んでいたら描き直す（並び順・キーワード・カーソルはどのカードを並べるかだけに効くので、カード単位で持てば共有できる）
+// ・ユーザーごとに変わる部分とフォームはテンプレート側で毎回描く
+@Component
+public class ReviewFragments {
+
+    private static final String TEMPLATE = "fragments/review-parts";
+
+    private static final class CachedCard {
+        final long version;
+        final String imageUrl;
+        final String html;
+
+        CachedCard(long version, String imageUrl, String html) {
+            this.version = version;
+            this.imageUrl = imageUrl;
+            this.html = html;
+        }
+    }
+
+    // 詳細ページの描画済み部分
+    public static final class Detail {
+        private final long version;
+        private final String imagePath;
+        private final String imageUrl;
+        private final String reviewHtml;
+        private final List<CommentPart> comments;
+
+        Detail(long version, String imagePath, String imageUrl, String reviewHtml, List<CommentPart> comments) {
+            this.version = version;
+            this.imagePath = imagePath;
+            this.imageUrl = imageUrl;
+            this.reviewHtml = reviewHtml;
+            this.comments = comments;
+        }
+
+        public String getReviewHtml() { return reviewHtml; }
+        public List<CommentPart> getComments() { return comments; }
+    }
+
+    // コメント1件分（返信フォームの宛先に id を使う）
+    public static final class CommentPart {
+        private final Long id;
+        private final String html;
+
+        CommentPart(Long id, String html) {
+            this.id = id;
+            this.html = html;
+        }
+
+        public Long getId() { return id; }
+        public String getHtml() { return html; }
+    }
+
+    private final ITemplateEngine templateEngine;
+    private final ReviewVersions versions;
+    private final ImageStore imageStore;
+    private final boolean enabled;
+    private final Cache<Integer, CachedCard> cards;
+    private final Cache<Integer, Detail> details;
+
+    public ReviewFragments(ITemplateEngine templateEngine,
+                           ReviewVersions versions,
+                           ImageStore imageStore,
+                           @Value("${review.fragments.enabled:true}") boolean enabled,
+                           @Value("${review.fragments.max-entries:5000}") long maxEntries) {
+        this.templateEngine = templateEngine;
+        this.versions = versions;
+        this.imageStore = imageStore;
+        this.enabled = enabled;
+        this.cards = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+        this.details = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+    }
+
+    // =========================
+    // 一覧のカード
+    // =========================
+    // seen は一覧を読む前の versions.global()。id → カード本文の HTML を返す
+    public Map<Integer, String> cards(List<ReviewCard> items, long seen) {
+        Map<Integer, String> result = new HashMap<>(items.size() * 2);
+        for (ReviewCard r : items) {
+            long version = versions.of(r.getId());
+            String imageUrl = imageStore.thumbnailUrl(r.getImagePath());
+            CachedCard cached = enabled ? cards.getIfPresent(r.getId()) : null;
+            if (cached != null && cached.version == version && Objects.equals(cached.imageUrl, imageUrl)) {
+                result.put(r.getId(), cached.html);
+                continue;
+            }
+
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("r", r);
+            vars.put("imageUrl", imageUrl);
+            String html = render("card", vars);
+            // 読んだ後に変更がコミットされていたら、読んだ内容は古いかもしれないので覚えない
+            // 変わった直後（レプリカが追いついていないかもしれない）も覚えない
+            if (enabled && version <= seen && versions.settled(r.getId())) {
+                cards.put(r.getId(), new CachedCard(version, imageUrl, html));
+            }
+            result.put(r.getId(), html);
+        }
+        return result;
+    }
+
+    // =========================
+    // 詳細ページ
+    // =========================
+    // キャッシュが新しければ review / comments は読まない
+    public Detail detail(Integer id, long seen, Supplier<Review> review,
+                         Function<Review, List<CommentView>> comments) {
+        long version = versions.of(id);
+        Detail cached = enabled ? details.getIfPresent(id) : null;
+        if (cached != null && cached.version == version
+                && Objects.equals(cached.imageUrl, imageStore.mediumUrl(cached.imagePath))) {
+            return cached;
+        }
+
+        Review r = review.get();
+        String imageUrl = imageStore.mediumUrl(r.getImagePath());
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("review", r);
+        vars.put("imageUrl", imageUrl);
+        String reviewHtml = render("detail", vars);
+
+        List<CommentPart> parts = new ArrayList<>();
+        for (CommentView c : comments.apply(r)) {
+            parts.add(new CommentPart(c.getId(), render("comment", Map.of("c", c))));
+        }
+
+        Detail detail = new Detail(version, r.getImagePath(), imageUrl, reviewHtml, List.copyOf(parts));
+        if (enabled && version <= seen && versions.settled(id)) {
+            details.put(id, detail);
+        }
+        return detail;
+    }
+
+    // 投稿されたコメント1件（ライブ更新用。まだ返信が無いのでキャッシュしない）
+    public String comment(CommentView c, boolean reply) {
+        return reply ? render("reply", Map.of("r", c)) : render("comment", Map.of("c", c));
+    }
+
+    private String render(String fragment, Map<String, Object> vars) {
+        Context context = new Context(LocaleContextHolder.getLocale(), vars);
+        return templateEngine.process(TEMPLATE, Set.of(fragment), context);
+    }
+
+    // CacheStatsController 用
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        result.put("fragments.cards", counts(cards.stats(), cards.estimatedSize()));
+        result.put("fragments.details", counts(details.stats(), details.estimatedSize()));
+        return result;
+    }
+
+    private static Map<String, Long> counts(CacheStats stats, long size) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("hits", stats.hitCount());
+        counts.put("misses", stats.missCount());
+        counts.put("size", size);
+        return counts;
+    }
+}
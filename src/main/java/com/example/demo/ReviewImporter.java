@@ -0,0 +1,273 @@
+package com.example.demo;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// レビューの一括取り込み
+// ・batch-size 行ずつ検証 → 投稿者をまとめて引く → JDBC のバッチ INSERT 1回 → コミット
+// ・JPA を通さないので永続化コンテキストに溜まらず、件数が増えてもメモリは一定
+// ・id は DB の identity 列に任せる（id を返してもらう必要が無いのでバッチにできる）
+// ・評価集計はバッチごとに名前単位でまとめて加算、検索インデックスはコミット後に追い付かせる
+@Service
+public class ReviewImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewImporter.class);
+
+    private static final String INSERT_SQL = "insert into review "
+            + "(course_name, teacher_name, rating, comment, image_path, likes, created_at, updated_at, user_id) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // review の文字列列の長さ（VARCHAR(255)）
+    private static final int MAX_TEXT = 255;
+    // 投稿者 id のキャッシュ上限（超えたら捨てて引き直す）
+    private static final int USER_CACHE_LIMIT = 100_000;
+
+    public interface Listener {
+        void onError(ImportError error);
+        void onProgress(ImportProgress progress);
+    }
+
+    // 検証を通った1行
+    private record Valid(long line, String courseName, String teacherName, int rating, String comment,
+                         String imagePath, int likes, LocalDateTime createdAt, String userEmail) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final RatingStatsService ratingStats;
+    private final ReviewSearchIndex searchIndex;
+    private final NameSuggester suggester;
+    private final ReviewVersions versions;
+    private final int batchSize;
+
+    public ReviewImporter(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          UserRepository userRepository,
+                          RatingStatsService ratingStats,
+                          ReviewSearchIndex searchIndex,
+                          NameSuggester suggester,
+                          ReviewVersions versions,
+                          @Value("${review.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.ratingStats = ratingStats;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.versions = versions;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportProgress importRows(Iterator<ImportRow> rows, Listener listener) {
+        ImportProgress progress = new ImportProgress();
+        Map<String, Long> userIds = new HashMap<>();
+        Integer maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from review", Integer.class);
+        int indexedUpTo = maxId == null ? 0 : maxId;
+
+        List<ImportRow> chunk = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == batchSize) {
+                writeChunk(chunk, userIds, progress, listener);
+                indexedUpTo = searchIndex.indexAfter(indexedUpTo);
+                versions.bumpGlobal();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, userIds, progress, listener);
+            searchIndex.indexAfter(indexedUpTo);
+            versions.bumpGlobal();
+        }
+
+        progress.finish();
+        listener.onProgress(progress);
+        log.info("Imported {} reviews ({} failed) in {} ms",
+                progress.getImported(), progress.getFailed(), progress.getElapsedMillis());
+        return progress;
+    }
+
+    private void writeChunk(List<ImportRow> chunk, Map<String, Long> userIds,
+                            ImportProgress progress, Listener listener) {
+        List<ImportError> errors = new ArrayList<>();
+        List<Valid> valid = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            try {
+                valid.add(validate(row));
+            } catch (IllegalArgumentException e) {
+                errors.add(new ImportError(row.getLine(), e.getMessage()));
+            }
+        }
+
+        resolveUsers(valid, userIds);
+        List<Valid> ready = new ArrayList<>(valid.size());
+        for (Valid v : valid) {
+            if (v.userEmail() != null && !userIds.containsKey(v.userEmail())) {
+                errors.add(new ImportError(v.line(), "unknown user: " + v.userEmail()));
+            } else {
+                ready.add(v);
+            }
+        }
+
+        int imported;
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(ready, userIds));
+            imported = ready.size();
+        } catch (DataAccessException e) {
+            // バッチのどこかで DB に弾かれた。1行ずつ入れ直して悪い行だけ外す
+            log.debug("Batch insert failed, retrying row by row", e);
+            imported = 0;
+            for (Valid v : ready) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(v), userIds));
+                    imported++;
+                } catch (DataAccessException rowError) {
+                    errors.add(new ImportError(v.line(), rootMessage(rowError)));
+                }
+            }
+        }
+
+        errors.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+        errors.forEach(listener::onError);
+        progress.add(chunk.size(), imported, chunk.size() - imported);
+        listener.onProgress(progress);
+    }
+
+    // INSERT と評価集計の加算を同じトランザクションで
+    private void insert(List<Valid> rows, Map<String, Long> userIds) {
+        if (rows.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (PreparedStatement ps, Valid v) -> {
+            ps.setString(1, v.courseName());
+            ps.setString(2, v.teacherName());
+            ps.setInt(3, v.rating());
+            ps.setString(4, v.comment());
+            ps.setString(5, v.imagePath());
+            ps.setInt(6, v.likes());
+            LocalDateTime createdAt = v.createdAt() == null ? now : v.createdAt();
+            ps.setTimestamp(7, Timestamp.valueOf(createdAt));
+            ps.setTimestamp(8, Timestamp.valueOf(now));
+            setUserId(ps, 9, v.userEmail() == null ? null : userIds.get(v.userEmail()));
+        });
+
+        Map<String, long[]> courses = new HashMap<>();
+        Map<String, long[]> teachers = new HashMap<>();
+        for (Valid v : rows) {
+            courses.computeIfAbsent(v.courseName(), k -> new long[5])[v.rating() - 1]++;
+            teachers.computeIfAbsent(v.teacherName(), k -> new long[5])[v.rating() - 1]++;
+        }
+        courses.forEach((name, h) -> ratingStats.onImported(RatingStats.COURSE, name, h));
+        teachers.forEach((name, h) -> ratingStats.onImported(RatingStats.TEACHER, name, h));
+        courses.forEach((name, h) -> suggester.onImported(RatingStats.COURSE, name, Arrays.stream(h).sum()));
+        teachers.forEach((name, h) -> suggester.onImported(RatingStats.TEACHER, name, Arrays.stream(h).sum()));
+    }
+
+    private static void setUserId(PreparedStatement ps, int index, Long userId) throws SQLException {
+        if (userId == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, userId);
+        }
+    }
+
+    // まだ引いていないメールアドレスだけ IN でまとめて引く
+    private void resolveUsers(List<Valid> rows, Map<String, Long> userIds) {
+        Set<String> missing = new HashSet<>();
+        for (Valid v : rows) {
+            if (v.userEmail() != null && !userIds.containsKey(v.userEmail())) {
+                missing.add(v.userEmail());
+            }
+        }
+        if (missing.isEmpty()) return;
+        if (userIds.size() + missing.size() > USER_CACHE_LIMIT) {
+            userIds.clear();
+        }
+        for (UserRepository.IdAndEmail u : userRepository.findByEmailIn(missing)) {
+            userIds.put(u.getEmail(), u.getId());
+        }
+    }
+
+    // =========================
+    // 検証
+    // =========================
+    private static Valid validate(ImportRow row) {
+        if (row.getError() != null) {
+            throw new IllegalArgumentException(row.getError());
+        }
+        String courseName = text(row, "courseName", true);
+        String teacherName = text(row, "teacherName", true);
+        int rating = number(row, "rating", 1, 5, null);
+        String comment = text(row, "comment", false);
+        String imagePath = text(row, "imagePath", false);
+        int likes = number(row, "likes", 0, Integer.MAX_VALUE, 0);
+        String userEmail = text(row, "userEmail", false);
+
+        LocalDateTime createdAt = null;
+        String created = row.get("createdAt");
+        if (created != null) {
+            try {
+                createdAt = LocalDateTime.parse(created);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("createdAt is not an ISO date-time: " + created);
+            }
+        }
+        return new Valid(row.getLine(), courseName, teacherName, rating, comment, imagePath, likes,
+                createdAt, userEmail);
+    }
+
+    private static String text(ImportRow row, String name, boolean required) {
+        String value = row.get(name);
+        if (value == null) {
+            if (required) throw new IllegalArgumentException(name + " is required");
+            return null;
+        }
+        if (value.length() > MAX_TEXT) {
+            throw new IllegalArgumentException(name + " is longer than " + MAX_TEXT + " characters");
+        }
+        return value;
+    }
+
+    private static int number(ImportRow row, String name, int min, int max, Integer defaultValue) {
+        String value = row.get(name);
+        if (value == null) {
+            if (defaultValue == null) throw new IllegalArgumentException(name + " is required");
+            return defaultValue;
+        }
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+        if (n < min || n > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+        }
+        return n;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) root = root.getCause();
+        return root.getMessage();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo;
+
+// 検索インデックス構築用の最小限の列だけを読むプロジェクション
+public interface ReviewIndexRow {
+    Integer getId();
+    String getCourseName();
+    String getTeacherName();
+    int getRating();
+    int getLikes();
+    int getTrendingScore();
+}
@@ -0,0 +1,13 @@
+package com.example.demo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// 指定した id のレビューが無いとき（画面・API とも 404）
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReviewNotFoundException extends RuntimeException {
+
+    public ReviewNotFoundException(Integer id) {
+        super("Review not found: " + id);
+    }
+}
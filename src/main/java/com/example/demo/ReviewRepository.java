@@ -1,30 +1,65 @@
 package com.example.demo;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ReviewRepository extends JpaRepository<Review, Integer> {
+public interface ReviewRepository extends JpaRepository<Review, Integer>, ReviewRepositoryCustom {
 
-    // 平均値計算などで使う（ソートなし）
-    List<Review> findByCourseNameContainingIgnoreCase(String keyword);
+    // ▼ 一覧のカード用（エンティティではなく ReviewCard を直接作る）
+    // キーセット方式のページングは ReviewRepositoryCustom#findCards、
+    // キーワード検索は ReviewSearchIndex が担当する
+    String CARD_SELECT = "select new com.example.demo.ReviewCard(r.id, r.courseName, r.teacherName, "
+            + "r.rating, r.likes, r.createdAt, r.imagePath, "
+            + "substring(r.comment, 1, " + (ReviewCard.PREVIEW_LENGTH + 1) + "), r.user.id, r.trendingScore) from Review r ";
+
+    @Query(CARD_SELECT + "where r.id in :ids")
+    List<ReviewCard> findCardsByIdIn(@Param("ids") Collection<Integer> ids);
 
     // 授業名・教員名の完全一致検索（詳細絞り込み用）
-    List<Review> findByCourseName(String courseName);
-    List<Review> findByTeacherName(String teacherName);
+    @Query(CARD_SELECT + "where r.courseName = :courseName order by r.id desc")
+    List<ReviewCard> findCardsByCourseName(@Param("courseName") String courseName);
+
+    @Query(CARD_SELECT + "where r.teacherName = :teacherName order by r.id desc")
+    List<ReviewCard> findCardsByTeacherName(@Param("teacherName") String teacherName);
 
-    // ▼ 検索＋並び替え用（ソート付き）
-    List<Review> findByCourseNameContainingIgnoreCase(String keyword, Sort sort);
+    // マイページ用
+    @Query(CARD_SELECT + "where r.user.id = :userId order by r.id desc")
+    List<ReviewCard> findCardsByUserId(@Param("userId") Long userId);
 
-    List<Review> findByTeacherNameContainingIgnoreCase(String keyword, Sort sort);
+    // 検索インデックス構築用（id 順にバッチで読む）
+    @Query("select r.id as id, r.courseName as courseName, r.teacherName as teacherName, "
+            + "r.rating as rating, r.likes as likes, r.trendingScore as trendingScore "
+            + "from Review r where r.id > :afterId order by r.id")
+    List<ReviewIndexRow> findIndexRows(@Param("afterId") int afterId, Pageable pageable);
 
-    List<Review> findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCase(
-            String courseKeyword,
-            String teacherKeyword,
-            Sort sort
-    );
+    // 投稿者チェック用（外部キーの値だけ読む）
+    @Query("select r.user.id from Review r where r.id = :id")
+    Optional<Long> findOwnerId(@Param("id") Integer id);
 
-    // マイページ用
-    List<Review> findByUser(User user);
+    // 評価集計の作り直し用（名前 × 評価ごとの件数）
+    interface RatingGroup {
+        String getName();
+        int getRating();
+        long getTotal();
+    }
+
+    @Query("select r.courseName as name, r.rating as rating, count(r) as total "
+            + "from Review r group by r.courseName, r.rating")
+    List<RatingGroup> countByCourseNameAndRating();
+
+    @Query("select r.teacherName as name, r.rating as rating, count(r) as total "
+            + "from Review r group by r.teacherName, r.rating")
+    List<RatingGroup> countByTeacherNameAndRating();
+
+    // 編集前の値（集計の差分計算用）
+    @Query("select r.id as id, r.courseName as courseName, r.teacherName as teacherName, "
+            + "r.rating as rating, r.likes as likes, r.trendingScore as trendingScore "
+            + "from Review r where r.id = :id")
+    Optional<ReviewIndexRow> findIndexRow(@Param("id") Integer id);
 }
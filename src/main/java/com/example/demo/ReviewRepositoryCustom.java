@@ -0,0 +1,16 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+// 並び順とカーソルで条件が変わる一覧クエリ（Criteria API で組み立てる）
+public interface ReviewRepositoryCustom {
+
+    // 読む向きの順に最大 limit 件のカードを返す（カーソルが無ければ先頭から）
+    List<ReviewCard> findCards(String sortKey, ReviewCursor cursor, int limit);
+
+    // id 順に afterId より後ろを DB カーソルで流す（since があればそれ以降に変更されたものだけ。limit 0 は無制限）
+    // 呼び出し側のトランザクションの中で読み切って close すること
+    Stream<ReviewDto> streamRows(LocalDateTime since, int afterId, int limit);
+}
@@ -0,0 +1,103 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+public class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+    // ストリーム読み出しで1回に取ってくる行数（PostgreSQL はトランザクション内ならサーバ側カーソルになる）
+    static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ReviewCard> findCards(String sortKey, ReviewCursor cursor, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ReviewCard> q = cb.createQuery(ReviewCard.class);
+        Root<Review> r = q.from(Review.class);
+        q.select(cardOf(cb, r));
+
+        String primaryName = ReviewCursor.primaryKey(sortKey);
+        Path<Integer> id = r.get("id");
+        Path<Integer> primary = primaryName == null ? null : r.get(primaryName);
+        boolean forward = cursor == null || cursor.isForward();
+
+        // (primary, id) が前ページ最後の行より後ろ（後ろ向きなら前）のものだけ
+        // OR だけだと PostgreSQL は (primary, id) の索引の範囲にできず先頭から読んで捨てるので、
+        // 同じ意味になる primary <= ?（後ろ向きは >=）を AND で足して、索引をカーソルの位置から読ませる
+        if (cursor != null) {
+            Integer cursorId = cursor.getKeys().get("id");
+            Predicate afterId = forward ? cb.lessThan(id, cursorId) : cb.greaterThan(id, cursorId);
+            if (primary == null) {
+                q.where(afterId);
+            } else {
+                Integer cursorPrimary = cursor.getKeys().get(primaryName);
+                Predicate afterPrimary = forward
+                        ? cb.lessThan(primary, cursorPrimary)
+                        : cb.greaterThan(primary, cursorPrimary);
+                Predicate range = forward
+                        ? cb.lessThanOrEqualTo(primary, cursorPrimary)
+                        : cb.greaterThanOrEqualTo(primary, cursorPrimary);
+                q.where(range, cb.or(afterPrimary, cb.and(cb.equal(primary, cursorPrimary), afterId)));
+            }
+        }
+
+        if (primary == null) {
+            q.orderBy(forward ? cb.desc(id) : cb.asc(id));
+        } else {
+            q.orderBy(forward ? cb.desc(primary) : cb.asc(primary), forward ? cb.desc(id) : cb.asc(id));
+        }
+        return em.createQuery(q).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<ReviewDto> streamRows(LocalDateTime since, int afterId, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ReviewDto> q = cb.createQuery(ReviewDto.class);
+        Root<Review> r = q.from(Review.class);
+        q.select(cb.construct(ReviewDto.class,
+                r.get("id"), r.get("courseName"), r.get("teacherName"), r.get("rating"), r.get("likes"),
+                r.get("comment"), r.get("imagePath"), r.get("createdAt"), r.get("updatedAt"),
+                r.get("user").get("id")));
+
+        List<Predicate> where = new ArrayList<>();
+        Path<Integer> id = r.get("id");
+        where.add(cb.greaterThan(id, afterId));
+        if (since != null) {
+            where.add(cb.greaterThanOrEqualTo(r.get("updatedAt"), since));
+        }
+        q.where(where.toArray(new Predicate[0]));
+        q.orderBy(cb.asc(id));
+
+        var query = em.createQuery(q)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultStream();
+    }
+
+    // ReviewRepository の "new ReviewCard(...)" と同じ列
+    private static CompoundSelection<ReviewCard> cardOf(CriteriaBuilder cb, Root<Review> r) {
+        return cb.construct(ReviewCard.class,
+                r.get("id"), r.get("courseName"), r.get("teacherName"), r.get("rating"), r.get("likes"),
+                r.get("createdAt"), r.get("imagePath"),
+                cb.substring(r.get("comment"), 1, ReviewCard.PREVIEW_LENGTH + 1),
+                r.get("user").get("id"), r.get("trendingScore"));
+    }
+}
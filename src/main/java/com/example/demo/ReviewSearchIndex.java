@@ -0,0 +1,431 @@
+package com.example.demo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 授業名・教員名のメモリ内 n-gram 索引
+// 日本語の名前は空白で区切れないので、1文字(unigram)と2文字(bigram)で転置リストを作る。
+// LIKE '%kw%' の全件走査の代わりに、キーワードの bigram の転置リストを突き合わせて候補を絞る。
+// 転置リストは lock で守る。いいね数だけは1件ごとの AtomicInteger で、いいねは lock を取らない
+// （entries は ConcurrentHashMap なので lock なしで引ける）
+@Component
+public class ReviewSearchIndex {
+
+    private static final int LOAD_BATCH = 1000;
+
+    // 1件分の索引データ（並び替えに使う値も持っておく）
+    // likes は作り直した Entry にも同じものを引き継ぐ（作り直しの最中のいいねも失わない）
+    private static final class Entry {
+        final int id;
+        final String course;
+        final String teacher;
+        final int rating;
+        final AtomicInteger likes;
+        final int trending;
+
+        Entry(int id, String course, String teacher, int rating, int likes, int trending) {
+            this(id, course, teacher, rating, new AtomicInteger(likes), trending);
+        }
+
+        Entry(int id, String course, String teacher, int rating, AtomicInteger likes, int trending) {
+            this.id = id;
+            this.course = course;
+            this.teacher = teacher;
+            this.rating = rating;
+            this.likes = likes;
+            this.trending = trending;
+        }
+    }
+
+    // id の昇順に並んだ転置リスト（id はほぼ増える一方なので末尾追加がほとんど）
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) return;
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    // 並び替えの途中でいいね数が変わらないよう、候補ごとに並び替えキーを読んでおく
+    private record Ranked(int id, int primary) {}
+
+    // 検索結果の1件（id と、カーソルに使う並び替えキー）
+    public record Hit(int id, Map<String, Integer> keys) {}
+
+    // 1ページ分の結果。hasMore は読んだ向きにまだ続きがあるか
+    public record Hits(List<Hit> hits, boolean hasMore) {}
+
+    private final ReviewRepository repository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Postings> coursePostings = new HashMap<>();
+    private final Map<Long, Postings> teacherPostings = new HashMap<>();
+
+    public ReviewSearchIndex(ReviewRepository repository) {
+        this.repository = repository;
+    }
+
+    // =========================
+    // 構築・更新
+    // =========================
+    // 起動時は InMemoryIndexLoader から（Web サーバーが受け付けを始める前）
+    public void rebuild() {
+        Map<Integer, Entry> loaded = new HashMap<>();
+        int afterId = 0;
+        while (true) {
+            List<ReviewIndexRow> rows = repository.findIndexRows(afterId, PageRequest.of(0, LOAD_BATCH));
+            for (ReviewIndexRow row : rows) {
+                loaded.put(row.getId(), new Entry(row.getId(), normalize(row.getCourseName()),
+                        normalize(row.getTeacherName()), row.getRating(), row.getLikes(), row.getTrendingScore()));
+                afterId = row.getId();
+            }
+            if (rows.size() < LOAD_BATCH) break;
+        }
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            coursePostings.clear();
+            teacherPostings.clear();
+            loaded.values().forEach(this::insert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 一括取り込みのあと：afterId より後ろの（まだ入っていない）行を読み込む。読んだ最後の id を返す
+    public int indexAfter(int afterId) {
+        while (true) {
+            List<ReviewIndexRow> rows = repository.findIndexRows(afterId, PageRequest.of(0, LOAD_BATCH));
+            lock.writeLock().lock();
+            try {
+                for (ReviewIndexRow row : rows) {
+                    if (!entries.containsKey(row.getId())) {
+                        insert(new Entry(row.getId(), normalize(row.getCourseName()),
+                                normalize(row.getTeacherName()), row.getRating(), row.getLikes(),
+                                row.getTrendingScore()));
+                    }
+                    afterId = row.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (rows.size() < LOAD_BATCH) return afterId;
+        }
+    }
+
+    // 保存・更新されたレビューを反映（トランザクション中ならコミット後に）
+    // 既存のレビューのいいね数・注目スコアは addLikes / setTrending で管理しているのでそのまま引き継ぐ
+    public void put(Review review) {
+        Entry entry = new Entry(review.getId(), normalize(review.getCourseName()),
+                normalize(review.getTeacherName()), review.getRating(), review.getLikes(),
+                review.getTrendingScore());
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                // entries からは外さずに置き換える（その間のいいねが索引に無いと見なされないように）
+                Entry old = entries.get(entry.id);
+                if (old != null) {
+                    removePostings(coursePostings, old.course, old.id);
+                    removePostings(teacherPostings, old.teacher, old.id);
+                }
+                insert(old == null ? entry
+                        : new Entry(entry.id, entry.course, entry.teacher, entry.rating, old.likes, old.trending));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Integer id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeEntry(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // いいね数だけ変わったとき（n-gram は作り直さない）
+    // いいねはトランザクション外でメモリ上に数えるので、その場で反映する。lock は取らない（検索を待たせない）
+    // 戻り値は反映後のいいね数（索引に無ければ -1）
+    public int addLikes(Integer id, long delta) {
+        Entry entry = entries.get(id);
+        return entry == null ? -1 : entry.likes.addAndGet((int) delta);
+    }
+
+    // 注目スコアが計算し直されたとき（TrendingScorer から）
+    public void setTrending(Integer id, int score) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(id);
+            if (old != null && old.trending != score) {
+                entries.put(id, new Entry(old.id, old.course, old.teacher, old.rating, old.likes, score));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.id, entry);
+        for (long gram : grams(entry.course, true)) {
+            coursePostings.computeIfAbsent(gram, g -> new Postings()).add(entry.id);
+        }
+        for (long gram : grams(entry.teacher, true)) {
+            teacherPostings.computeIfAbsent(gram, g -> new Postings()).add(entry.id);
+        }
+    }
+
+    private void removeEntry(int id) {
+        Entry old = entries.remove(id);
+        if (old == null) return;
+        removePostings(coursePostings, old.course, id);
+        removePostings(teacherPostings, old.teacher, id);
+    }
+
+    private static void removePostings(Map<Long, Postings> postings, String text, int id) {
+        for (long gram : grams(text, true)) {
+            Postings p = postings.get(gram);
+            if (p == null) continue;
+            p.remove(id);
+            if (p.size == 0) postings.remove(gram);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // =========================
+    // 検索
+    // =========================
+    // target: course / teacher / all、sortKey: recent / rating / likes
+    public Hits search(String keyword, String target, String sortKey, ReviewCursor cursor, int limit) {
+        String needle = normalize(keyword);
+        if (needle.isEmpty()) {
+            return new Hits(List.of(), false);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Entry> candidates = new ArrayList<>();
+            boolean course = !"teacher".equals(target);
+            boolean teacher = !"course".equals(target);
+            if (course) {
+                collect(coursePostings, needle, true, false, candidates);
+            }
+            if (teacher) {
+                collect(teacherPostings, needle, false, course, candidates);
+            }
+            return page(candidates, sortKey, cursor, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 転置リストの共通部分を取り、実際に部分一致するものだけ残す
+    // skipCourseMatches: 授業名側ですでに拾った id を二重に数えないため
+    private void collect(Map<Long, Postings> postings, String needle, boolean courseField,
+                         boolean skipCourseMatches, List<Entry> out) {
+        long[] grams = grams(needle, false);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) return;
+        }
+        // 一番短い転置リストを起点にする
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings smallest = lists[0];
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            boolean all = true;
+            for (int j = 1; j < lists.length && all; j++) {
+                all = lists[j].contains(id);
+            }
+            if (!all) continue;
+            Entry e = entries.get(id);
+            if (e == null) continue;
+            if (!(courseField ? e.course : e.teacher).contains(needle)) continue;
+            if (skipCourseMatches && e.course.contains(needle)) continue;
+            out.add(e);
+        }
+    }
+
+    // 並び順どおりにカーソルの次の limit 件を取り出す（全候補のソートはしない）
+    private Hits page(List<Entry> candidates, String sortKey, ReviewCursor cursor, int limit) {
+        // cursor は ReviewService で並び順と合っているか確認済み
+        boolean forward = cursor == null || cursor.isForward();
+        Integer cursorId = null;
+        int cursorPrimary = 0;
+        if (cursor != null) {
+            String name = ReviewCursor.primaryKey(sortKey);
+            cursorId = cursor.getKeys().get("id");
+            cursorPrimary = name == null ? 0 : cursor.getKeys().get(name);
+        }
+
+        // 表示順で前にあるものほど小さい
+        Comparator<Ranked> order = (a, b) -> compare(a.primary, a.id, b.primary, b.id);
+        // 読む向きに並べたときの順序
+        Comparator<Ranked> readOrder = forward ? order : order.reversed();
+
+        // readOrder で先頭 limit+1 件を残すヒープ（ヒープの先頭は残す中で一番後ろ）
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(limit + 2, readOrder.reversed());
+        for (Entry e : candidates) {
+            Ranked r = new Ranked(e.id, primary(e, sortKey));
+            if (cursorId != null) {
+                int c = compare(r.primary, r.id, cursorPrimary, cursorId);
+                if (forward ? c <= 0 : c >= 0) continue;
+            }
+            heap.offer(r);
+            if (heap.size() > limit + 1) heap.poll();
+        }
+
+        List<Ranked> picked = new ArrayList<>(heap);
+        picked.sort(readOrder);
+        boolean hasMore = picked.size() > limit;
+        if (hasMore) {
+            picked = picked.subList(0, limit);
+        }
+        if (!forward) {
+            picked = new ArrayList<>(picked);
+            Collections.reverse(picked);
+        }
+
+        List<Hit> hits = new ArrayList<>(picked.size());
+        for (Ranked r : picked) {
+            hits.add(new Hit(r.id, keys(r, sortKey)));
+        }
+        return new Hits(hits, hasMore);
+    }
+
+    private static int compare(int p1, int id1, int p2, int id2) {
+        if (p1 != p2) return Integer.compare(p2, p1); // 降順
+        return Integer.compare(id2, id1);             // 同点は新しい順
+    }
+
+    private static int primary(Entry e, String sortKey) {
+        return switch (sortKey) {
+            case "rating" -> e.rating;
+            case "likes" -> e.likes.get();
+            case "trending" -> e.trending;
+            default -> 0;
+        };
+    }
+
+    // ReviewService の DB 側ページングと同じ名前のキーを使う
+    private static Map<String, Integer> keys(Ranked r, String sortKey) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        String name = ReviewCursor.primaryKey(sortKey);
+        if (name != null) {
+            keys.put(name, r.primary);
+        }
+        keys.put("id", r.id);
+        return keys;
+    }
+
+    // =========================
+    // n-gram
+    // =========================
+    // 全角・半角の揺れと大文字小文字をそろえる
+    static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).strip();
+    }
+
+    // 索引側(forIndex)は unigram と bigram の両方、検索側は1文字なら unigram、それ以外は bigram
+    static long[] grams(String text, boolean forIndex) {
+        int n = text.length();
+        if (n == 0) return new long[0];
+        if (!forIndex) {
+            if (n == 1) return new long[] { unigram(text.charAt(0)) };
+            long[] grams = new long[n - 1];
+            for (int i = 0; i < n - 1; i++) {
+                grams[i] = bigram(text.charAt(i), text.charAt(i + 1));
+            }
+            return Arrays.stream(grams).distinct().toArray();
+        }
+        long[] grams = new long[n + n - 1];
+        for (int i = 0; i < n; i++) {
+            grams[i] = unigram(text.charAt(i));
+        }
+        for (int i = 0; i < n - 1; i++) {
+            grams[n + i] = bigram(text.charAt(i), text.charAt(i + 1));
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static long unigram(char c) {
+        return (1L << 32) | c;
+    }
+
+    private static long bigram(char a, char b) {
+        return ((long) a << 16) | b;
+    }
+}
@@ -1,137 +1,353 @@
 package com.example.demo;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+// 読み取りのメソッドは @Transactional(readOnly = true)。レプリカを設定していればそちらで読む（ReadReplicaConfig）
 @Service
 public class ReviewService {
 
     private final ReviewRepository repository;
     private final CommentRepository commentRepository;
+    private final ReviewSearchIndex searchIndex;
+    private final LikeCounter likeCounter;
+    private final RatingStatsService ratingStats;
+    private final CommentThreadLoader threadLoader;
+    private final ReviewVersions versions;
+    private final NameSuggester suggester;
+    private final TrendingScorer trendingScorer;
+    private final ReviewEvents events;
+    // 書き込みの前の読み取り（readOnly を付けないのでプライマリで読む）
+    private final TransactionTemplate primary;
 
     public ReviewService(ReviewRepository repository,
-                         CommentRepository commentRepository) {
+                         CommentRepository commentRepository,
+                         ReviewSearchIndex searchIndex,
+                         LikeCounter likeCounter,
+                         RatingStatsService ratingStats,
+                         CommentThreadLoader threadLoader,
+                         ReviewVersions versions,
+                         NameSuggester suggester,
+                         TrendingScorer trendingScorer,
+                         ReviewEvents events,
+                         PlatformTransactionManager transactionManager) {
         this.repository = repository;
         this.commentRepository = commentRepository;
+        this.searchIndex = searchIndex;
+        this.likeCounter = likeCounter;
+        this.ratingStats = ratingStats;
+        this.threadLoader = threadLoader;
+        this.versions = versions;
+        this.suggester = suggester;
+        this.trendingScorer = trendingScorer;
+        this.events = events;
+        this.primary = new TransactionTemplate(transactionManager);
     }
 
+    // 1ページあたりの件数（指定なし / 上限）
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     // =========================
-    // 検索 ＋ 並び替え
+    // 検索 ＋ 並び替え（カーソル方式のページング）
     // =========================
-    public List<Review> search(String keyword, String target, String sortKey) {
-        Sort sort = createSort(sortKey);
+    // OFFSET を使わず「前ページ最後の行より後ろ」を条件に取るので、深いページでも先頭と同じコスト
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewCard> search(String keyword, String target, String sortKey,
+                                         String cursor, int size) {
+        String key = normalizeSortKey(sortKey);
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        // 別の並び順で作られたカーソルは使わず先頭から
+        ReviewCursor current = ReviewCursor.decode(cursor);
+        if (current != null && !current.matches(key)) {
+            current = null;
+        }
 
-        // キーワード無し → 全件
-        if (keyword == null || keyword.isBlank()) {
-            return repository.findAll(sort);
+        // キーワードあり → n-gram 索引で候補 id を絞ってから本体を読む
+        if (keyword != null && !keyword.isBlank()) {
+            return searchIndexed(keyword, target, key, current, limit);
         }
 
-        // 対象によって分岐
-        switch (target) {
-            case "course":
-                return repository.findByCourseNameContainingIgnoreCase(keyword, sort);
-            case "teacher":
-                return repository.findByTeacherNameContainingIgnoreCase(keyword, sort);
-            default: // all
-                return repository
-                        .findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCase(
-                                keyword, keyword, sort);
+        // キーワード無し → 全件をキーセットで読む（1件多く読んで続きの有無を判定）
+        List<ReviewCard> rows = repository.findCards(key, current, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<ReviewCard> items = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        if (items.isEmpty()) {
+            return new CursorPage<>(items, null, null);
         }
+        if (current != null && !current.isForward()) {
+            Collections.reverse(items);
+        }
+        // カーソルは DB の値で作り、表示には未反映のいいねを足す
+        return toPage(key, current, likeCounter.applyPendingToCards(items),
+                keysOf(items.get(0), key), keysOf(items.get(items.size() - 1), key), hasMore);
     }
 
-    // 並び替え条件
-    private Sort createSort(String sortKey) {
-        return switch (sortKey) {
-            case "rating" -> Sort.by(Sort.Direction.DESC, "rating"); // 評価順
-            case "likes"  -> Sort.by(Sort.Direction.DESC, "likes");  // いいね順
-            default       -> Sort.by(Sort.Direction.DESC, "id");     // 新しい順
-        };
+    private CursorPage<ReviewCard> searchIndexed(String keyword, String target, String key,
+                                                 ReviewCursor current, int limit) {
+        ReviewSearchIndex.Hits result = searchIndex.search(keyword, target, key, current, limit);
+        List<ReviewSearchIndex.Hit> hits = result.hits();
+        if (hits.isEmpty()) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+
+        List<Integer> ids = new ArrayList<>(hits.size());
+        hits.forEach(h -> ids.add(h.id()));
+        Map<Integer, ReviewCard> byId = new HashMap<>();
+        repository.findCardsByIdIn(ids).forEach(c -> byId.put(c.getId(), c));
+
+        // 索引の順番どおりに並べ直す（索引に残っていた削除済みの行は飛ばす）
+        List<ReviewCard> items = new ArrayList<>(hits.size());
+        for (Integer id : ids) {
+            ReviewCard c = byId.get(id);
+            if (c != null) items.add(c);
+        }
+        return toPage(key, current, likeCounter.applyPendingToCards(items),
+                hits.get(0).keys(), hits.get(hits.size() - 1).keys(), result.hasMore());
+    }
+
+    // 後ろ向きに読んだときは hasMore が「さらに前がある」を意味する
+    private static <T> CursorPage<T> toPage(String key, ReviewCursor current, List<T> items,
+                                            Map<String, Integer> firstKeys,
+                                            Map<String, Integer> lastKeys,
+                                            boolean hasMore) {
+        boolean forward = current == null || current.isForward();
+        boolean hasNext = forward ? hasMore : true;
+        boolean hasPrev = forward ? current != null : hasMore;
+
+        String next = hasNext ? new ReviewCursor(key, true, lastKeys).encode() : null;
+        String prev = hasPrev ? new ReviewCursor(key, false, firstKeys).encode() : null;
+        return new CursorPage<>(items, next, prev);
+    }
+
+    private String normalizeSortKey(String sortKey) {
+        if ("rating".equals(sortKey) || "likes".equals(sortKey) || "trending".equals(sortKey)) {
+            return sortKey;
+        }
+        return "recent";
+    }
+
+    // カーソルのキー（同点のときは id で順序を一意にする）
+    private static Map<String, Integer> keysOf(ReviewCard card, String sortKey) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        switch (sortKey) {
+            case "rating" -> keys.put("rating", card.getRating()); // 評価順
+            case "likes"  -> keys.put("likes", card.getLikes());   // いいね順
+            case "trending" -> keys.put("trendingScore", card.getTrendingScore()); // 注目順
+            default       -> { }                                  // 新しい順
+        }
+        keys.put("id", card.getId());
+        return keys;
     }
 
     // =========================
     // 基本的な CRUD
     // =========================
+    @Transactional
     public void addReview(Review review) {
+        // 反応 0 の時点のスコアを入れておく（以降は TrendingScorer が更新する）
+        review.setTrendingScore(trendingScorer.score(review.getLikes(), 0,
+                review.getCreatedAt() == null ? LocalDateTime.now() : review.getCreatedAt()));
         repository.save(review);
+        ratingStats.onCreated(review.getCourseName(), review.getTeacherName(), review.getRating());
+        searchIndex.put(review);
+        suggester.onCreated(review.getCourseName(), review.getTeacherName());
+        versions.bump(review.getId());
     }
 
+    @Transactional
     public void save(Review review) {
-        repository.save(review);
+        if (review.getId() == null) {
+            addReview(review);
+            return;
+        }
+
+        // 編集前の値（読み込み時に覚えた値、無ければ DB から）を先に取っておく
+        String oldCourse = review.getLoadedCourseName();
+        String oldTeacher = review.getLoadedTeacherName();
+        Integer oldRating = review.getLoadedRating();
+        if (oldRating == null) {
+            ReviewIndexRow old = repository.findIndexRow(review.getId()).orElse(null);
+            if (old == null) {
+                addReview(review);
+                return;
+            }
+            oldCourse = old.getCourseName();
+            oldTeacher = old.getTeacherName();
+            oldRating = old.getRating();
+        }
+
+        Review saved = repository.save(review);
+        ratingStats.onUpdated(oldCourse, oldTeacher, oldRating,
+                saved.getCourseName(), saved.getTeacherName(), saved.getRating());
+        searchIndex.put(saved);
+        suggester.onUpdated(oldCourse, oldTeacher, saved.getCourseName(), saved.getTeacherName());
+        likeCounter.evictAfterCommit(saved.getId());
+        versions.bump(saved.getId());
     }
 
+    @Transactional
     public void deleteById(Integer id) {
-        repository.deleteById(id);
+        repository.findById(id).ifPresent(r -> {
+            repository.delete(r);
+            ratingStats.onDeleted(r.getCourseName(), r.getTeacherName(), r.getRating());
+            suggester.onDeleted(r.getCourseName(), r.getTeacherName());
+        });
+        searchIndex.remove(id);
+        versions.bump(id);
     }
 
+    @Transactional(readOnly = true)
     public Review getById(Integer id) {
+        return fresh(id, () -> repository.findById(id))
+                .map(likeCounter::applyPending)
+                .orElseThrow(() -> new ReviewNotFoundException(id));
+    }
+
+    // 編集・コメントのために読むときはこちら。readOnly でないのでレプリカに振り分けられず、プライマリで読む
+    // （save は読み込み時の値との差で rating_stats・NameSuggester を直すので、遅れたレプリカの値だと集計がずれる）
+    // いいねの未反映分は足さない（likes は UPDATE 対象外なので保存には関係ない）
+    @Transactional
+    public Review getForUpdate(Integer id) {
         return repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Review not found: " + id));
+                .orElseThrow(() -> new ReviewNotFoundException(id));
     }
 
     // =========================
     // いいね
     // =========================
-    public void like(Integer id) {
-        Review r = getById(id);
-        r.incrementLikes();
-        repository.save(r);
+    // DB には触らずメモリ上で数え、LikeCounter がまとめて書き込む
+    // 戻り値は押した後のいいね数。開いているページへは ReviewEvents がまとめて送る
+    // 無い id なら数える前に ReviewNotFoundException（カウンタ・版番号を無駄に増やさない）
+    public int like(Integer id) {
+        int likes = searchIndex.addLikes(id, 1);
+        if (likes < 0) {
+            // 索引に無い（索引の外で入った・存在しない）ものだけ DB で確かめる。
+            // 読んだエンティティは書き換えない（いいね数は LikeCounter の未反映分を足して数える）
+            Review review = primary.execute(status -> repository.findById(id).orElse(null));
+            if (review == null) {
+                throw new ReviewNotFoundException(id);
+            }
+            likes = (int) (review.getLikes() + likeCounter.pending(id) + 1);
+        }
+        likeCounter.increment(id);
+        versions.bumpLikes(id);
+        events.liked(id, likes);
+        return likes;
     }
 
     // =========================
     // 平均値計算
     // =========================
+    // 集計テーブルから返すのでレビュー本体は読まない
     public double getAverage(String courseName) {
-        List<Review> list = repository.findByCourseNameContainingIgnoreCase(courseName);
-        if (list.isEmpty()) return 0;
+        return getCourseSummary(courseName).getAverage();
+    }
 
-        int sum = 0;
-        for (Review r : list) {
-            sum += r.getRating();
-        }
-        return (double) sum / list.size();
+    public RatingSummary getCourseSummary(String courseName) {
+        return ratingStats.summarize(RatingStats.COURSE, courseName);
+    }
+
+    public RatingSummary getTeacherSummary(String teacherName) {
+        return ratingStats.summarize(RatingStats.TEACHER, teacherName);
     }
 
     // =========================
     // コメント関連
     // =========================
-    public List<Comment> getComments(Review review) {
-        return commentRepository.findByReviewAndParentCommentIsNullOrderByIdAsc(review);
+    // コメント数に関係なくクエリ1回で、返信まで組み立てたツリーを返す
+    @Transactional(readOnly = true)
+    public List<CommentView> getComments(Review review) {
+        return fresh(review.getId(), () -> threadLoader.load(review.getId()));
+    }
+
+    // 直前に変わったレビューはプライマリで読む（ReviewVersions#settled）
+    // 実際の接続は最初の SQL で取る（ReadReplicaConfig）ので、readOnly のトランザクションの中で切り替えられる。
+    // レプリカの古い内容が2次キャッシュ・描画済み HTML・ETag に載らないように
+    private <T> T fresh(Integer id, Supplier<T> read) {
+        return versions.settled(id) ? read.get() : ReadReplicas.onPrimary(read);
     }
 
-    public void addComment(Review review, User user, String content, String university, String faculty, String department) {
+    // 追加したコメントを表示用の形で返す（詳細ページを開いている人へはコミット後に ReviewEvents が送る）
+    @Transactional
+    public CommentView addComment(Review review, User user, String content, String university, String faculty, String department) {
         Comment c = new Comment(review, user, content, university, faculty, department);
         commentRepository.save(c);
+        versions.bump(review.getId());
+        return published(review, c, null);
     }
 
+    // 返信の親を確かめるために読むので、getForUpdate と同じくプライマリで読む（投稿直後のコメントにも返信できるように）
+    @Transactional
     public Comment getCommentById(Long id) {
         return commentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Comment not found: " + id));
     }
 
-    public void addReply(Review review, Comment parent, User user, String content, String university, String faculty, String department) {
+    @Transactional
+    public CommentView addReply(Review review, Comment parent, User user, String content, String university, String faculty, String department) {
         Comment c = new Comment(review, user, content, university, faculty, department);
         c.setParentComment(parent);
         commentRepository.save(c);
+        versions.bump(review.getId());
+        return published(review, c, parent.getId());
+    }
+
+    private CommentView published(Review review, Comment c, Long parentId) {
+        String email = c.getUser() == null ? null : c.getUser().getEmail();
+        CommentView view = new CommentView(c.getId(), email, c.getContent(), c.getCreatedAt(),
+                c.getUniversity(), c.getFaculty(), c.getDepartment());
+        events.commented(review.getId(), parentId, view);
+        return view;
     }
 
     // =========================
     // 絞り込み用（授業名・教員名・ユーザー）
     // =========================
-    public List<Review> getByCourseName(String courseName) {
-        return repository.findByCourseName(courseName);
+    @Transactional(readOnly = true)
+    public List<ReviewCard> getByCourseName(String courseName) {
+        return likeCounter.applyPendingToCards(repository.findCardsByCourseName(courseName));
     }
 
-    public List<Review> getByTeacherName(String teacherName) {
-        return repository.findByTeacherName(teacherName);
+    @Transactional(readOnly = true)
+    public List<ReviewCard> getByTeacherName(String teacherName) {
+        return likeCounter.applyPendingToCards(repository.findCardsByTeacherName(teacherName));
     }
 
-    public List<Review> getByUser(User user) {
-        return repository.findByUser(user);
+    @Transactional(readOnly = true)
+    public List<ReviewCard> getByUserId(Long userId) {
+        return likeCounter.applyPendingToCards(repository.findCardsByUserId(userId));
     }
-    public List<Review> getAll() {
-        return repository.findAll();
+
+    // 投稿者チェック用（レビュー本体は読まない）
+    @Transactional(readOnly = true)
+    public Long getOwnerId(Integer reviewId) {
+        return repository.findOwnerId(reviewId).orElse(null);
+    }
+
+    // API の一括取得・差分同期用。DB カーソルから1件ずつ sink に渡すので、件数が増えてもメモリは一定
+    @Transactional(readOnly = true)
+    public void streamAll(LocalDateTime since, int afterId, int limit, Consumer<ReviewDto> sink) {
+        try (Stream<ReviewDto> rows = repository.streamRows(since, afterId, limit)) {
+            rows.forEach(r -> {
+                long pending = likeCounter.pending(r.getId());
+                sink.accept(pending == 0 ? r : r.withLikes((int) (r.getLikes() + pending)));
+            });
+        }
     }
 
 }
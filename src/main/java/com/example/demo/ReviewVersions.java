@@ -0,0 +1,114 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// レビューごとの変更バージョン（ReviewService の書き込みがコミットされるたびに進む）
+// 値は「最後に変わったときの全体の連番」なので、
+// 「読み始める前に global() を覚えておき、of(id) がそれ以下なら読んだ内容は最新」と判定できる
+// いいねは数字だけが変わるので、描画済み HTML（ReviewFragments）を捨てないよう別に数える（ETag には両方効く）
+// ※ メモリ上の値なのでアプリを複数台で動かす場合は台ごとになる
+//
+// レプリカを使っているときは、変わってから少しのあいだ（settled() が false の間）はレプリカが古いかもしれない。
+// その間は ReviewService がプライマリで読み、描画済み HTML も ETag も作らない
+// （古い内容を新しいバージョンで覚えると、次に変わるまで誰にでもそれを返してしまう）。
+// 長さは replica-max-lag ＋ ヘルスチェックの間隔（遅れたレプリカが外れるまで）＋ いいねの書き込み間隔
+@Component
+public class ReviewVersions {
+
+    private final AtomicLong global = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Long> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> likes = new ConcurrentHashMap<>();
+
+    // 最後に変わった時刻（System.nanoTime）。レプリカを使っていなければ記録しない
+    private final long settleNanos;
+    private final Cache<Integer, Long> recentlyChanged;
+    private volatile long globalChangedAt;
+
+    public ReviewVersions(ReadReplicas replicas,
+                          @Value("${review.datasource.replica-max-lag:5s}") Duration maxLag,
+                          @Value("${review.datasource.replica-check-interval-ms:5000}") long checkIntervalMillis,
+                          @Value("${review.likes.flush-interval-ms:1000}") long likesFlushMillis) {
+        Duration settle = maxLag.plusMillis(checkIntervalMillis + likesFlushMillis);
+        this.settleNanos = replicas.isEnabled() ? settle.toNanos() : 0;
+        this.recentlyChanged = settleNanos > 0
+                ? Caffeine.newBuilder().expireAfterWrite(settle).build()
+                : null;
+        this.globalChangedAt = System.nanoTime() - settleNanos;
+    }
+
+    // どれか（いいね・並び順を含む）が最後に変わったときの連番
+    public long global() {
+        return global.get();
+    }
+
+    // このレビューが最後に変わったときの連番（起動後に変わっていなければ 0）
+    public long of(Integer id) {
+        return versions.getOrDefault(id, 0L);
+    }
+
+    // いいね数の変化も含めた、このレビューが最後に変わったときの連番
+    public long latest(Integer id) {
+        return Math.max(of(id), likes.getOrDefault(id, 0L));
+    }
+
+    // レプリカでもこのレビューの最新が読めるはず（false の間は読み取り・キャッシュをプライマリ基準で）
+    public boolean settled(Integer id) {
+        return recentlyChanged == null || recentlyChanged.getIfPresent(id) == null;
+    }
+
+    // 一覧（どのレビューも）について settled
+    public boolean globalSettled() {
+        return settleNanos == 0 || System.nanoTime() - globalChangedAt >= settleNanos;
+    }
+
+    // 変更を反映する。トランザクション中ならコミット後に
+    // （コミット前に進めると、古い内容を新しいバージョンで覚えてしまう）
+    public void bump(Integer id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bumpNow(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bumpNow(id);
+            }
+        });
+    }
+
+    // いいね（LikeCounter はメモリ上で数えるのですぐに反映される）
+    public void bumpLikes(Integer id) {
+        likes.merge(id, global.incrementAndGet(), Math::max);
+        changed(id);
+    }
+
+    // 個々のレビューではなく並び順や件数だけが変わったとき（注目スコアの更新・一括取り込み）
+    public void bumpGlobal() {
+        global.incrementAndGet();
+        changed(null);
+    }
+
+    private void bumpNow(Integer id) {
+        versions.merge(id, global.incrementAndGet(), Math::max);
+        changed(id);
+    }
+
+    private void changed(Integer id) {
+        if (settleNanos == 0) return;
+        long now = System.nanoTime();
+        if (id != null) {
+            recentlyChanged.put(id, now);
+        }
+        globalChangedAt = now;
+    }
+}
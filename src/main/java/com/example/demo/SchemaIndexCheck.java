@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// 起動時に、クエリが前提にしている索引が DB に揃っているかを確かめる
+// マイグレーション（db/migration）を飛ばした・手で消した DB で、気づかないまま全件走査になるのを防ぐ
+//   review.schema.index-check=fail（既定）: 足りなければ起動を止める / warn: ログだけ / off: 見ない
+@Component
+public class SchemaIndexCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+    // テーブルごとの索引名（V3__query_indexes.sql と揃える）
+    static final Map<String, List<String>> EXPECTED = new LinkedHashMap<>();
+    static {
+        EXPECTED.put("review", List.of(
+                "idx_review_rating", "idx_review_likes", "idx_review_trending",
+                "idx_review_course_name", "idx_review_teacher_name", "idx_review_user",
+                "idx_review_updated_at"));
+        EXPECTED.put("comment", List.of(
+                "idx_comment_review", "idx_comment_parent", "idx_comment_user", "idx_comment_created_at"));
+    }
+
+    // PostgreSQL だけのもの（V4__case_insensitive_search.sql。H2 には式の索引が無い）
+    static final Map<String, List<String>> EXPECTED_POSTGRESQL = Map.of(
+            "rating_stats", List.of("idx_rating_stats_name_upper"));
+
+    private final DataSource dataSource;
+    private final String mode;
+
+    public SchemaIndexCheck(DataSource dataSource,
+                            @Value("${review.schema.index-check:fail}") String mode) {
+        this.dataSource = dataSource;
+        this.mode = mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() throws SQLException {
+        if ("off".equals(mode)) return;
+
+        List<String> missing = missing();
+        if (missing.isEmpty()) {
+            log.info("All expected indexes are present");
+            return;
+        }
+        String message = "Missing indexes " + missing + "; run the db/migration scripts (Flyway)";
+        if ("warn".equals(mode)) {
+            log.warn(message);
+            return;
+        }
+        throw new IllegalStateException(message);
+    }
+
+    // 足りない索引を "テーブル.索引名" で返す
+    public List<String> missing() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData meta = connection.getMetaData();
+            Map<String, List<String>> expected = new LinkedHashMap<>(EXPECTED);
+            if (meta.getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgres")) {
+                expected.putAll(EXPECTED_POSTGRESQL);
+            }
+
+            List<String> missing = new ArrayList<>();
+            for (Map.Entry<String, List<String>> e : expected.entrySet()) {
+                Set<String> present = indexNames(meta, connection.getSchema(), e.getKey());
+                for (String index : e.getValue()) {
+                    if (!present.contains(index)) {
+                        missing.add(e.getKey() + "." + index);
+                    }
+                }
+            }
+            return missing;
+        }
+    }
+
+    private static Set<String> indexNames(DatabaseMetaData meta, String schema, String table) throws SQLException {
+        // H2 は大文字、PostgreSQL は小文字で持っている
+        String name = meta.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Set<String> names = new HashSet<>();
+        try (ResultSet rs = meta.getIndexInfo(null, schema, name, false, true)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                if (index != null) names.add(index.toLowerCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+}
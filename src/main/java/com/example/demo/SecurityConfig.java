@@ -1,32 +1,106 @@
 package com.example.demo;
 
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 
 @Configuration
 public class SecurityConfig {
 
-    // CustomUserDetailsService は自動で注入される（今はここでは特に何もしないけどOK）
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    // CustomUserDetailsService は自動で注入される（ログイン時の照合 authenticationProvider で使う）
     private final CustomUserDetailsService userDetailsService;
 
     public SecurityConfig(CustomUserDetailsService userDetailsService) {
         this.userDetailsService = userDetailsService;
     }
 
-    // パスワードハッシュ用
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // パスワードハッシュ用（BCrypt を専用スレッドで。溢れたら 503）
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${review.password.bcrypt-cost:10}") int cost,
+            @Value("${review.password.threads:0}") int threads,
+            @Value("${review.password.queue-capacity:64}") int queueCapacity,
+            @Value("${review.password.max-wait:5s}") Duration maxWait,
+            @Value("${review.password.retry-after:5s}") Duration retryAfter,
+            @Value("${review.password.latency-budget:250ms}") Duration latencyBudget) {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        checkLatencyBudget(bcrypt, cost, latencyBudget);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(bcrypt, poolSize, queueCapacity, maxWait, retryAfter);
+    }
+
+    // 起動時に1回測って、コストが予算に収まっているかをログに出す（コストが1上がると時間は2倍）
+    private static void checkLatencyBudget(PasswordEncoder bcrypt, int cost, Duration budget) {
+        bcrypt.encode("warm-up");
+        long start = System.nanoTime();
+        bcrypt.encode("calibration");
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        if (millis > budget.toMillis()) {
+            int fits = cost;
+            long estimate = millis;
+            while (fits > 4 && estimate > budget.toMillis()) {
+                fits--;
+                estimate /= 2;
+            }
+            log.warn("BCrypt cost {} takes {}ms, over the {}ms budget; cost {} would take about {}ms",
+                    cost, millis, budget.toMillis(), fits, estimate);
+        } else {
+            log.info("BCrypt cost {} takes {}ms (budget {}ms)", cost, millis, budget.toMillis());
+        }
+    }
+
+    // ログイン時のパスワード照合。ハッシュ待ちが溢れたら認証の例外に包んで loginFailureHandler へ渡す
+    // （そのままだと認証の外へ素通りして 500 になる）
+    private DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService) {
+            // 照合だけでなく、ユーザーが居ないときのダミー照合（タイミング攻撃対策）でも溢れうる
+            @Override
+            public Authentication authenticate(Authentication authentication) {
+                try {
+                    return super.authenticate(authentication);
+                } catch (PasswordHashingBusyException e) {
+                    throw new InternalAuthenticationServiceException(e.getMessage(), e);
+                }
+            }
+        };
+        provider.setPasswordEncoder(passwordEncoder);
+        return provider;
+    }
+
+    // ログイン時のハッシュ待ちが溢れたら 503、それ以外は今までどおり /login?error
+    private static AuthenticationFailureHandler loginFailureHandler() {
+        SimpleUrlAuthenticationFailureHandler fallback = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        return (request, response, exception) -> {
+            PasswordHashingBusyException busy = PasswordHashingBusyException.find(exception);
+            if (busy != null) {
+                busy.writeTo(response);
+                return;
+            }
+            fallback.onAuthenticationFailure(request, response, exception);
+        };
     }
 
     // セキュリティ設定のメイン
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
         http
+            .authenticationProvider(authenticationProvider(passwordEncoder))
             .csrf(csrf -> csrf.disable()) // 開発中はとりあえずOFF
             .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin())) 
             .authorizeHttpRequests(auth -> auth
@@ -36,11 +110,15 @@ public class SecurityConfig {
                         "/css/**",
                         "/js/**"
                 ).permitAll()              // ここは誰でもOK
+                // 一括取り込みは投稿者・いいね数・投稿日時を自由に指定できるので管理者だけ
+                // （users.role を ROLE_ADMIN にしたアカウント）
+                .requestMatchers(HttpMethod.POST, "/api/reviews/import").hasRole("ADMIN")
                 .anyRequest().authenticated() // それ以外はログイン必須
             )
             .formLogin(login -> login
                 .loginPage("/login")
                 .defaultSuccessUrl("/reviews", true)
+                .failureHandler(loginFailureHandler())
                 .permitAll()
             )
             .logout(logout -> logout
@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationInitializer;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 起動まわり（pom.xml の fast-startup プロファイル・Dockerfile と合わせて使う）
+// ・遅延初期化（spring.main.lazy-initialization=true）でも、DB・マイグレーション・JPA は起動時に作る
+//   （スキーマの不整合や DB に繋がらないことを最初のリクエストではなく起動時に知るため）。
+//   @Scheduled のある Bean と Lifecycle（InMemoryIndexLoader）は Spring Boot が起動時に作る
+// ・CDS の学習用の起動（application-training.properties）では DB が無いのでマイグレーションを飛ばす。
+//   AOT では spring.flyway.enabled が実行時に効かないので、Flyway は作ったまま migrate だけしない
+@Configuration
+public class StartupConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupConfig.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerInfrastructure() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, FlywayMigrationInitializer.class,
+                EntityManagerFactory.class, PinnedThreadMonitor.class);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigration(@Value("${review.flyway.migrate:true}") boolean migrate) {
+        return flyway -> {
+            if (migrate) {
+                flyway.migrate();
+            } else {
+                log.info("Skipping Flyway migrations (review.flyway.migrate=false)");
+            }
+        };
+    }
+}
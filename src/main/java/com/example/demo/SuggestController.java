@@ -0,0 +1,35 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// 検索窓の入力補完（授業名・教員名の前方一致、レビュー件数の多い順）
+//   q:      入力途中の文字列
+//   target: course / teacher / all（一覧の検索フォームと同じ）
+//   limit:  件数（最大 NameSuggester.MAX_LIMIT）
+@RestController
+public class SuggestController {
+
+    // 打つたびに呼ばれるので、同じ入力はしばらくブラウザに持たせる
+    private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofSeconds(30)).cachePrivate();
+
+    private final NameSuggester suggester;
+
+    public SuggestController(NameSuggester suggester) {
+        this.suggester = suggester;
+    }
+
+    @GetMapping("/api/suggest")
+    public ResponseEntity<List<NameSuggester.Suggestion>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "all") String target,
+            @RequestParam(defaultValue = "" + NameSuggester.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok().cacheControl(CACHE).body(suggester.suggest(q, target, limit));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// 実行モード（仮想スレッドかどうか）・DB の入場待ち・ピン留めの集計
+@RestController
+public class ThreadStatsController {
+
+    private final DataSource dataSource;
+    private final PinnedThreadMonitor pinnedThreads;
+    private final boolean virtualRequested;
+
+    public ThreadStatsController(DataSource dataSource, PinnedThreadMonitor pinnedThreads,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualRequested) {
+        this.dataSource = dataSource;
+        this.pinnedThreads = pinnedThreads;
+        this.virtualRequested = virtualRequested;
+    }
+
+    @GetMapping("/api/threads/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("javaVersion", Runtime.version().toString());
+        result.put("virtualThreads", virtualRequested && ThreadingConfig.virtualThreadsAvailable());
+        result.put("requestThreadVirtual", ThreadingConfig.isVirtual(Thread.currentThread()));
+        result.put("admission", admissionStats());
+        result.put("pinned", pinnedThreads.stats());
+        return result;
+    }
+
+    // QueryInspectingDataSource などに包まれていても中の AdmissionDataSource を探す
+    private Map<String, Long> admissionStats() {
+        try {
+            return dataSource.isWrapperFor(AdmissionDataSource.class)
+                    ? dataSource.unwrap(AdmissionDataSource.class).stats()
+                    : Map.of();
+        } catch (SQLException e) {
+            return Map.of();
+        }
+    }
+}
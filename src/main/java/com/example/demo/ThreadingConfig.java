@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 仮想スレッドでの実行（spring.threads.virtual.enabled=true、Java 21 以上で起動したときだけ効く）
+// ・Tomcat のリクエスト処理と @Scheduled が仮想スレッドになる。ReviewService の JPA もそのまま乗る
+// ・DB の同時実行数は AdmissionDataSource で Hikari のプール数までに絞る（既定では仮想スレッドのときだけ）
+// ・ピン留め（キャリアスレッドを塞いだままのブロック）は PinnedThreadMonitor が記録する
+// ・AOT（pom.xml の fast-startup）では、Tomcat などを仮想スレッドにするかがビルド時の設定で決まる。
+//   実行時の REVIEW_VIRTUAL_THREADS はこのクラスの2つの設定にだけ効いてしまうので、食い違っていたら起動時に止める
+//   （Docker では --build-arg REVIEW_VIRTUAL_THREADS=true でビルドする）
+@Configuration
+public class ThreadingConfig {
+
+    // 仮想スレッドの設定で Bean を作ったときだけある目印（AOT ではビルド時の設定で決まる）
+    record VirtualThreadsBuild() {}
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    VirtualThreadsBuild virtualThreadsBuild() {
+        return new VirtualThreadsBuild();
+    }
+
+    @Bean
+    public SmartInitializingSingleton threadingModeCheck(
+            @Value("${spring.threads.virtual.enabled:false}") boolean requested,
+            ObjectProvider<VirtualThreadsBuild> build) {
+        return () -> {
+            boolean built = build.stream().findAny().isPresent();
+            if (built != (requested && virtualThreadsAvailable())) {
+                throw new IllegalStateException("spring.threads.virtual.enabled=" + requested
+                        + " (REVIEW_VIRTUAL_THREADS) but the application was built for "
+                        + (built ? "virtual" : "platform") + " threads. With AOT (-Dspring.aot.enabled=true) the mode is"
+                        + " fixed at build time; rebuild with -Dreview.virtual-threads=" + requested
+                        + " (Docker: --build-arg REVIEW_VIRTUAL_THREADS=" + requested + ")");
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor databaseAdmission(
+            @Value("${review.db.admission.enabled:false}") boolean enabled,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${review.db.admission.timeout:30s}") Duration timeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof AdmissionDataSource)) {
+                    return new AdmissionDataSource(dataSource, poolSize, timeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Java 17 でもビルドできるように Thread.isVirtual() はリフレクションで呼ぶ
+    static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+}
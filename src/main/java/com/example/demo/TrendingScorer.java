@@ -0,0 +1,149 @@
+package com.example.demo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// 「注目順」（sort=trending）のスコアを review.trending_score に書いておく
+//
+// スコア = log2(1 + いいね + コメント数 × comment-weight) + (投稿日時 - 基準日) / half-life
+// 「half-life だけ新しい」と「反応が2倍」が同じ重さになる（反応は時間とともに半減していく）。
+// 全部のスコアが同じ速さで減るので、減衰分を今の時刻ではなく投稿日時の側に寄せておけば
+// 並び順は時間が経っても変わらない。だから書き直しが要るのは反応が増減したレビューだけで、
+// 一覧は (trending_score, id) の索引をキーセットで読むだけになる（表全体のソートはしない）。
+@Component
+public class TrendingScorer {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingScorer.class);
+
+    // 保存するときの倍率（カーソルのキーは整数なので小数第3位までを整数にする）
+    static final int SCALE = 1000;
+    // 減衰の基準日（値の大きさを抑えるためだけのもの。変えると全件の書き直しになる）
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int LOAD_BATCH = 1000;
+    // コミットが遅れた書き込みを取りこぼさないよう、前回の開始時刻より少し前から見る
+    private static final Duration GRACE = Duration.ofMinutes(1);
+
+    private static final String SELECT = "select r.id, r.likes, r.created_at, "
+            + "(select count(*) from comment c where c.review_id = r.id) as comments from review r ";
+    private static final String SELECT_ALL = SELECT + "where r.id > ? order by r.id limit ?";
+    // 変わったレビューの id。OR で1つの where にすると索引が使えず review を全件なめるので、
+    // idx_review_updated_at と idx_comment_created_at をそれぞれ読む2つの select の union にする
+    private static final String SELECT_CHANGED_IDS = "select r.id from review r where r.updated_at >= ? "
+            + "union select c.review_id from comment c where c.created_at >= ? and c.review_id is not null";
+    private static final String UPDATE = "update review set trending_score = ? where id = ? and trending_score <> ?";
+
+    private record Row(int id, int score) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewSearchIndex searchIndex;
+    private final ReviewVersions versions;
+    private final double halfLifeSeconds;
+    private final double commentWeight;
+
+    // 前回の実行開始時刻（null なら次は全件）
+    private LocalDateTime lastRun;
+
+    public TrendingScorer(JdbcTemplate jdbcTemplate,
+                          ReviewSearchIndex searchIndex,
+                          ReviewVersions versions,
+                          @Value("${review.trending.half-life:48h}") Duration halfLife,
+                          @Value("${review.trending.comment-weight:3}") double commentWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchIndex = searchIndex;
+        this.versions = versions;
+        this.halfLifeSeconds = Math.max(1, halfLife.toSeconds());
+        this.commentWeight = commentWeight;
+    }
+
+    public int score(int likes, long comments, LocalDateTime createdAt) {
+        double activity = Math.max(0, likes) + comments * commentWeight;
+        double age = createdAt == null ? 0
+                : createdAt.toEpochSecond(ZoneOffset.UTC) - EPOCH.toEpochSecond(ZoneOffset.UTC);
+        return (int) Math.round((Math.log1p(activity) / Math.log(2) + age / halfLifeSeconds) * SCALE);
+    }
+
+    // 起動後の1回目は全件（設定が変わっていても揃う）、以降は前回から反応のあったレビューだけ
+    @Scheduled(initialDelayString = "${review.trending.initial-delay-ms:0}",
+               fixedDelayString = "${review.trending.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        LocalDateTime started = LocalDateTime.now();
+        int changed = lastRun == null ? recompute(null) : recompute(lastRun.minus(GRACE));
+        if (changed > 0) {
+            log.debug("Updated {} trending scores ({})", changed, lastRun == null ? "full" : "incremental");
+        }
+        lastRun = started;
+    }
+
+    // 全件を計算し直す（テストや設定変更のあと用）
+    public synchronized int recomputeAll() {
+        LocalDateTime started = LocalDateTime.now();
+        int changed = recompute(null);
+        lastRun = started;
+        return changed;
+    }
+
+    private int recompute(LocalDateTime since) {
+        int changed = 0;
+        if (since == null) {
+            int afterId = 0;
+            while (true) {
+                List<Row> rows = jdbcTemplate.query(SELECT_ALL, (rs, i) -> toRow(rs), afterId, LOAD_BATCH);
+                if (rows.isEmpty()) break;
+                changed += write(rows);
+                afterId = rows.get(rows.size() - 1).id();
+                if (rows.size() < LOAD_BATCH) break;
+            }
+        } else {
+            // 先に変わった id だけを索引から集め、そのレビューだけ計算する
+            List<Integer> ids = new ArrayList<>(jdbcTemplate.queryForList(SELECT_CHANGED_IDS, Integer.class,
+                    Timestamp.valueOf(since), Timestamp.valueOf(since)));
+            Collections.sort(ids);
+            for (int from = 0; from < ids.size(); from += LOAD_BATCH) {
+                List<Integer> batch = ids.subList(from, Math.min(from + LOAD_BATCH, ids.size()));
+                String in = String.join(",", Collections.nCopies(batch.size(), "?"));
+                changed += write(jdbcTemplate.query(SELECT + "where r.id in (" + in + ")",
+                        (rs, i) -> toRow(rs), batch.toArray()));
+            }
+        }
+        // 注目順の並びが変わったので一覧の ETag を進める
+        if (changed > 0) {
+            versions.bumpGlobal();
+        }
+        return changed;
+    }
+
+    // 書き換えた（スコアが変わった）件数を返す
+    private int write(List<Row> rows) {
+        if (rows.isEmpty()) return 0;
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            args.add(new Object[] { row.score(), row.id(), row.score() });
+        }
+        int changed = 0;
+        for (int c : jdbcTemplate.batchUpdate(UPDATE, args)) {
+            if (c > 0) changed++;
+        }
+        rows.forEach(row -> searchIndex.setTrending(row.id(), row.score()));
+        return changed;
+    }
+
+    private Row toRow(ResultSet rs) throws SQLException {
+        Timestamp created = rs.getTimestamp("created_at");
+        return new Row(rs.getInt("id"), score(rs.getInt("likes"), rs.getLong("comments"),
+                created == null ? null : created.toLocalDateTime()));
+    }
+}
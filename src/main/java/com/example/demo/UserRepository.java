@@ -1,9 +1,25 @@
 package com.example.demo;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // ログイン・現在ユーザーの引き直しで何度も呼ばれるので結果をキャッシュする（users の更新で無効になる）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
+
+    // 一括取り込みでメールアドレスから id をまとめて引く（id と email だけ読む）
+    interface IdAndEmail {
+        Long getId();
+        String getEmail();
+    }
+
+    List<IdAndEmail> findByEmailIn(Collection<String> emails);
 }
@@ -1,5 +1,6 @@
 package com.example.demo;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -7,10 +8,23 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final ImageStore imageStore;
+    private final String uploadsServing;
+
+    public WebConfig(ImageStore imageStore,
+                     @Value("${review.uploads.serving:zero-copy}") String uploadsServing) {
+        this.imageStore = imageStore;
+        this.uploadsServing = uploadsServing;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // プロジェクト直下の "uploads" フォルダを /uploads/** で配信
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
+        // 通常は UploadController が配信する。"resource" のときだけ以前どおりフォルダをそのまま公開
+        if (!"resource".equals(uploadsServing)) {
+            return;
+        }
+        String location = imageStore.getDirectory().toUri().toString();
+        registry.addResourceHandler(ImageStore.URL_PREFIX + "**")
+                .addResourceLocations(location.endsWith("/") ? location : location + "/");
     }
 }
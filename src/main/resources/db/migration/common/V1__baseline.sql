@@ -0,0 +1,41 @@
+-- ddl-auto=update で作られていたスキーマ（既存の DB では baseline 扱いで実行されない）
+
+create table users (
+    id bigint generated by default as identity,
+    email varchar(255) not null unique,
+    password varchar(255) not null,
+    role varchar(255) not null,
+    university varchar(255),
+    primary key (id)
+);
+
+create table review (
+    id integer generated by default as identity,
+    course_name varchar(255),
+    teacher_name varchar(255),
+    rating integer not null,
+    comment varchar(255),
+    image_path varchar(255),
+    likes integer,
+    created_at timestamp(6),
+    user_id bigint,
+    primary key (id)
+);
+
+create table comment (
+    id bigint generated by default as identity,
+    review_id integer,
+    user_id bigint,
+    parent_comment_id bigint,
+    content varchar(500) not null,
+    created_at timestamp(6),
+    university varchar(100) not null,
+    faculty varchar(100) not null,
+    department varchar(100) not null,
+    primary key (id)
+);
+
+alter table review add constraint fk_review_user foreign key (user_id) references users (id);
+alter table comment add constraint fk_comment_review foreign key (review_id) references review (id);
+alter table comment add constraint fk_comment_user foreign key (user_id) references users (id);
+alter table comment add constraint fk_comment_parent foreign key (parent_comment_id) references comment (id);
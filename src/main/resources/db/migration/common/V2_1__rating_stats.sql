@@ -0,0 +1,17 @@
+-- 授業名・教員名ごとの評価集計（RatingStatsService が書く。空なら起動時にレビューから作り直す）
+-- ddl-auto の頃の DB には無く、V1 は baseline 扱いで実行されないのでここで作る。
+-- V1 が作っていた頃の開発用 DB には既にあるので if not exists
+create table if not exists rating_stats (
+    id bigint generated by default as identity,
+    scope varchar(16) not null,
+    name varchar(255) not null,
+    review_count bigint not null,
+    rating_sum bigint not null,
+    stars1 bigint not null,
+    stars2 bigint not null,
+    stars3 bigint not null,
+    stars4 bigint not null,
+    stars5 bigint not null,
+    primary key (id),
+    unique (scope, name)
+);
@@ -0,0 +1,4 @@
+-- 最後に変更された日時（/api/reviews?since= と TrendingScorer）。baseline の頃のスキーマには無いので足す
+-- ddl-auto の頃に列だけ作られた DB もあるので if not exists。既存の行は作成日時で埋める
+alter table review add column if not exists updated_at timestamp(6);
+update review set updated_at = created_at where updated_at is null;
@@ -0,0 +1,2 @@
+-- 注目順のスコア（TrendingScorer が書く）。ddl-auto の頃に列だけ作られた DB もあるので if not exists
+alter table review add column if not exists trending_score integer default 0 not null;
@@ -0,0 +1,22 @@
+-- 各クエリの「where の等値条件 → order by」の順に並べた索引
+-- 名前は SchemaIndexCheck の期待値と揃えること
+
+-- 一覧のキーセットページング（ReviewRepositoryCustomImpl#findCards。order by <列> desc, id desc は逆向きに読む）
+create index if not exists idx_review_rating on review (rating, id);
+create index if not exists idx_review_likes on review (likes, id);
+create index if not exists idx_review_trending on review (trending_score, id);
+
+-- 授業名・教員名の完全一致とマイページ（where ... = ? order by id desc）
+create index if not exists idx_review_course_name on review (course_name, id);
+create index if not exists idx_review_teacher_name on review (teacher_name, id);
+create index if not exists idx_review_user on review (user_id, id);
+
+-- 差分同期 /api/reviews?since= と TrendingScorer の「前回から変わったもの」
+create index if not exists idx_review_updated_at on review (updated_at);
+
+-- コメントツリー（where review_id = ? order by id）と返信・投稿者の外部キー
+create index if not exists idx_comment_review on comment (review_id, id);
+create index if not exists idx_comment_parent on comment (parent_comment_id);
+create index if not exists idx_comment_user on comment (user_id);
+-- TrendingScorer の「前回から増えたコメント」
+create index if not exists idx_comment_created_at on comment (created_at);
@@ -0,0 +1,5 @@
+-- 評価集計の部分一致（RatingStatsRepository#findByScopeAndNameContainingIgnoreCase）は
+-- upper(name) like upper('%kw%') になるので、upper(name) の trigram 索引で引けるようにする
+-- （H2 には式の索引が無いので PostgreSQL だけ）
+create extension if not exists pg_trgm;
+create index if not exists idx_rating_stats_name_upper on rating_stats using gin (upper(name) gin_trgm_ops);
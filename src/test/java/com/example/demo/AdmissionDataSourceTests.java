@@ -0,0 +1,58 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+class AdmissionDataSourceTests {
+
+	private static AdmissionDataSource dataSource(int permits) {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:admission;DB_CLOSE_DELAY=-1");
+		return new AdmissionDataSource(h2, permits, Duration.ofMillis(100));
+	}
+
+	@Test
+	void waitsForAFreeSlotAndGivesUpAfterTheTimeout() throws Exception {
+		AdmissionDataSource dataSource = dataSource(1);
+
+		Connection first = dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+		first.close();
+		first.close();
+
+		try (Connection second = dataSource.getConnection()) {
+			assertThat(second.isValid(1)).isTrue();
+			assertThat(dataSource.stats()).containsEntry("inUse", 1L);
+		}
+		assertThat(dataSource.stats())
+				.containsEntry("inUse", 0L)
+				.containsEntry("admitted", 2L)
+				.containsEntry("rejected", 1L);
+	}
+
+	@Test
+	void slotsAreSharedAcrossThreads() throws Exception {
+		AdmissionDataSource dataSource = dataSource(2);
+		Connection held = dataSource.getConnection();
+
+		Thread other = new Thread(() -> {
+			try (Connection c = dataSource.getConnection()) {
+				c.createStatement().execute("select 1");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		other.start();
+		other.join();
+
+		assertThat(dataSource.stats()).containsEntry("inUse", 1L).containsEntry("rejected", 0L);
+		held.close();
+	}
+}
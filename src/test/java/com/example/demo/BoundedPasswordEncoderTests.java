@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+// ハッシュを max-wait 内に終えられない設定（コスト 12 に対して 20ms）で、登録・ログインが 503 になること
+@SpringBootTest(properties = {
+		"review.password.bcrypt-cost=12",
+		"review.password.threads=1",
+		"review.password.queue-capacity=1",
+		"review.password.max-wait=20ms",
+		"review.password.retry-after=7s" })
+@AutoConfigureMockMvc
+class BoundedPasswordEncoderTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private UserRepository users;
+
+	// 呼ばれたら release されるまで止まる PasswordEncoder
+	static class BlockingEncoder implements PasswordEncoder {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encodedPassword.equals(encode(rawPassword));
+		}
+	}
+
+	@Test
+	void hashesOnThePoolAndCountsTime() {
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4,
+				Duration.ofSeconds(5), Duration.ofSeconds(1));
+		try {
+			String hash = encoder.encode("secret");
+			assertThat(encoder.matches("secret", hash)).isTrue();
+			assertThat(encoder.matches("wrong", hash)).isFalse();
+			assertThat(encoder.stats()).containsEntry("hashes", 3L).containsEntry("rejected", 0L);
+		} finally {
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsWhenTheQueueIsFull() throws Exception {
+		BlockingEncoder blocking = new BlockingEncoder();
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blocking, 1, 1,
+				Duration.ofSeconds(5), Duration.ofSeconds(3));
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			callers.submit(() -> encoder.encode("a"));
+			assertThat(blocking.started.await(5, TimeUnit.SECONDS)).isTrue();
+			callers.submit(() -> encoder.encode("b"));
+			while (((Number) encoder.stats().get("queued")).intValue() < 1) {
+				Thread.onSpinWait();
+			}
+
+			assertThatThrownBy(() -> encoder.encode("c"))
+					.isInstanceOfSatisfying(PasswordHashingBusyException.class,
+							e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(3));
+			assertThat(encoder.stats()).containsEntry("rejected", 1L);
+		} finally {
+			blocking.release.countDown();
+			callers.shutdown();
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	void registerAndLoginAnswer503WhenHashingCannotKeepUp() throws Exception {
+		mvc.perform(post("/register")
+						.param("email", "storm@example.com")
+						.param("password", "pw")
+						.param("university", "大学"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "7"));
+		assertThat(users.findByEmail("storm@example.com")).isEmpty();
+
+		users.findByEmail("login-storm@example.com").orElseGet(() -> users.save(new User(
+				"login-storm@example.com", new BCryptPasswordEncoder(12).encode("pw"), "ROLE_STUDENT", "大学")));
+		mvc.perform(post("/login")
+						.param("username", "login-storm@example.com")
+						.param("password", "pw"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "7"));
+	}
+}
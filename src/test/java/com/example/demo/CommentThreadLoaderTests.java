@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class CommentThreadLoaderTests {
+
+	@Autowired
+	private CommentThreadLoader loader;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private CommentRepository comments;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private User user;
+
+	@BeforeEach
+	void user() {
+		user = users.findByEmail("thread@example.com")
+				.orElseGet(() -> users.save(new User("thread@example.com", "x", "ROLE_STUDENT", "大学")));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbc.update("update comment set parent_comment_id = null");
+		comments.deleteAll();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	private Review review(String course) {
+		Review review = new Review(course, "先生", 3, "x");
+		service.addReview(review);
+		return review;
+	}
+
+	private CommentView comment(Review review, String content) {
+		return service.addComment(review, user, content, "大学", "理学部", "化学科");
+	}
+
+	private CommentView reply(Review review, CommentView parent, String content) {
+		return service.addReply(review, service.getCommentById(parent.getId()), user, content, "大学", "理学部", "化学科");
+	}
+
+	// 実行した SQL の数（QueryInspectingDataSource が数える）
+	private int statementsToLoad(Integer reviewId) {
+		QueryStats stats = QueryStats.begin();
+		try {
+			loader.load(reviewId);
+		} finally {
+			QueryStats.end();
+		}
+		return stats.getStatements();
+	}
+
+	@Test
+	void buildsTheTreeInIdOrder() {
+		Review review = review("分析化学");
+		CommentView first = comment(review, "1つ目");
+		CommentView second = comment(review, "2つ目");
+		reply(review, first, "1つ目への返信A");
+		CommentView replyB = reply(review, first, "1つ目への返信B");
+		reply(review, replyB, "返信Bへの返信");
+
+		List<CommentView> roots = loader.load(review.getId());
+
+		assertThat(roots).extracting(CommentView::getId).containsExactly(first.getId(), second.getId());
+		assertThat(roots.get(0).getReplies()).extracting(CommentView::getContent)
+				.containsExactly("1つ目への返信A", "1つ目への返信B");
+		assertThat(roots.get(0).getReplies().get(1).getReplies()).extracting(CommentView::getContent)
+				.containsExactly("返信Bへの返信");
+		assertThat(roots.get(1).getReplies()).isEmpty();
+		assertThat(roots.get(0).getAuthorEmail()).isEqualTo("thread@example.com");
+	}
+
+	// 親が別のレビューのコメントなら、そのレビューではトップレベルに出す
+	@Test
+	void replyToAnotherReviewsCommentIsShownAtTheTop() {
+		Review review = review("分析化学");
+		Review other = review("無機化学");
+		CommentView foreign = comment(other, "別のレビュー");
+		CommentView own = comment(review, "このレビュー");
+		jdbc.update("update comment set parent_comment_id = ? where id = ?", foreign.getId(), own.getId());
+
+		assertThat(loader.load(review.getId())).extracting(CommentView::getId).containsExactly(own.getId());
+	}
+
+	// コメントが何件あっても SQL は1回
+	@Test
+	void statementCountDoesNotDependOnCommentCount() {
+		Review small = review("分析化学");
+		comment(small, "1件だけ");
+
+		Review large = review("無機化学");
+		for (int i = 0; i < 10; i++) {
+			CommentView c = comment(large, "コメント" + i);
+			reply(large, c, "返信" + i);
+		}
+
+		assertThat(statementsToLoad(small.getId())).isEqualTo(1);
+		assertThat(statementsToLoad(large.getId())).isEqualTo(1);
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+class ImageStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private ImageStore store;
+
+	@BeforeEach
+	void setUp() {
+		store = new ImageStore(dir.toString(), 1, 10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.shutdown();
+	}
+
+	@Test
+	void sameContentIsStoredOnce() throws Exception {
+		byte[] png = png(1600, 900);
+		String first = store.store(new MockMultipartFile("imageFile", "a.PNG", "image/png", png));
+		String second = store.store(new MockMultipartFile("imageFile", "b.png", "image/png", png));
+
+		assertThat(first).isEqualTo(second).startsWith("/uploads/").endsWith(".png");
+		assertThat(store.awaitIdle(10_000)).isTrue();
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.filter(Files::isRegularFile)).hasSize(3); // 元画像＋サムネイル＋中サイズ
+		}
+	}
+
+	@Test
+	void variantsAreServedOnceReady() throws Exception {
+		String original = store.store(new MockMultipartFile("imageFile", "photo.jpg", "image/jpeg", png(2000, 1000)));
+		assertThat(store.awaitIdle(10_000)).isTrue();
+
+		String thumb = store.thumbnailUrl(original);
+		String medium = store.mediumUrl(original);
+		assertThat(thumb).endsWith("-thumb.jpg");
+		assertThat(medium).endsWith("-medium.jpg");
+
+		BufferedImage t = ImageIO.read(dir.resolve(thumb.substring(ImageStore.URL_PREFIX.length())).toFile());
+		BufferedImage m = ImageIO.read(dir.resolve(medium.substring(ImageStore.URL_PREFIX.length())).toFile());
+		assertThat(t.getWidth()).isEqualTo(320);
+		assertThat(m.getWidth()).isEqualTo(1024);
+	}
+
+	@Test
+	void fallsBackToOriginalForNonImages() throws Exception {
+		String path = store.store(new MockMultipartFile("imageFile", "notes.txt", "text/plain", "hello".getBytes()));
+		assertThat(store.awaitIdle(10_000)).isTrue();
+
+		assertThat(store.thumbnailUrl(path)).isEqualTo(path);
+		assertThat(store.thumbnailUrl(null)).isNull();
+	}
+
+	private static byte[] png(int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(width / 2, height / 2, 0xff0000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "review.likes.flush-interval-ms=3600000")
+class LikeCounterTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private LikeCounter likeCounter;
+
+	@AfterEach
+	void cleanUp() {
+		likeCounter.flush();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void concurrentLikesAreNotLost() throws Exception {
+		Review review = new Review("線形代数", "山田", 4, "c");
+		service.addReview(review);
+		Integer id = review.getId();
+
+		int threads = 8;
+		int perThread = 2000;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perThread; i++) {
+					service.like(id);
+					// 途中で書き込みが走っても数はずれない
+					if (i % 500 == 0) likeCounter.flush();
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		start.countDown();
+		for (Thread worker : workers) worker.join();
+
+		// 書き込み前でも読み取りには反映されている
+		assertThat(service.getById(id).getLikes()).isEqualTo(threads * perThread);
+
+		likeCounter.flush();
+		assertThat(likeCounter.pending(id)).isZero();
+		assertThat(repository.findById(id).orElseThrow().getLikes()).isEqualTo(threads * perThread);
+	}
+
+	@Test
+	void savingAnEditDoesNotOverwriteLikes() {
+		Review review = new Review("微分積分", "佐藤", 3, "c");
+		service.addReview(review);
+		service.like(review.getId());
+		likeCounter.flush();
+
+		Review loaded = repository.findById(review.getId()).orElseThrow();
+		loaded.setComment("edited");
+		loaded.setLikes(0);
+		service.save(loaded);
+
+		assertThat(repository.findById(review.getId()).orElseThrow().getLikes()).isEqualTo(1);
+	}
+}
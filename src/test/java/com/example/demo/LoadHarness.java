@@ -0,0 +1,321 @@
+package com.example.demo;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// 負荷試験（手で動かす。テストとしては実行されない）
+//   mvn test-compile
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//        com.example.demo.LoadHarness --reviews=100000 --users=2000 --clients=50 --duration=60s [--db=file] [--spring.xxx=...]
+// ・アプリを組み込み H2 で起動し、SyntheticData で合成データを入れる（--db=file なら target/loadtest に保存）
+// ・クライアントごとに本物のフォームログイン（SecurityConfig）でセッションを作り、
+//   一覧・検索・詳細・いいね・コメント・画像付き投稿を混ぜてリクエストする
+// ・ウォームアップの後、エンドポイントごとに件数・エラー・スループット・p50 / p99 を出す
+public class LoadHarness {
+
+    // 操作と混ぜる割合（％）
+    enum Action {
+        BROWSE("GET  /reviews", 35),
+        SEARCH("GET  /reviews?keyword=", 20),
+        DETAIL("GET  /reviews/{id}", 20),
+        LIKE("POST /reviews/{id}/like", 10),
+        COMMENT("POST /reviews/{id}/comments", 10),
+        UPLOAD("POST /reviews (image)", 5);
+
+        final String label;
+        final int weight;
+
+        Action(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+
+        static Action pick(Random random) {
+            int r = random.nextInt(100);
+            for (Action a : values()) {
+                r -= a.weight;
+                if (r < 0) return a;
+            }
+            return BROWSE;
+        }
+    }
+
+    // 1クライアント・1操作分の所要時間
+    static final class Samples {
+        long[] nanos = new long[1024];
+        int size;
+        int errors;
+
+        void add(long n) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = n;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) add(other.nanos[i]);
+            errors += other.errors;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Map<String, String> options = new LinkedHashMap<>(Map.of(
+                "users", "500", "reviews", "20000", "clients", "32",
+                "duration", "30s", "warmup", "10s", "db", "mem", "seed", "42"));
+        List<String> springArgs = new ArrayList<>();
+        for (String a : args) {
+            String key = a.startsWith("--") && a.contains("=") ? a.substring(2, a.indexOf('=')) : null;
+            if (key != null && options.containsKey(key)) {
+                options.put(key, a.substring(a.indexOf('=') + 1));
+            } else {
+                springArgs.add(a);
+            }
+        }
+        int clients = Integer.parseInt(options.get("clients"));
+        Duration warmup = Duration.parse("PT" + options.get("warmup").toUpperCase());
+        Duration duration = Duration.parse("PT" + options.get("duration").toUpperCase());
+
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "review.uploads.dir=target/loadtest/uploads",
+                "logging.level.root=warn"));
+        if (options.get("db").equals("file")) {
+            properties.add("spring.datasource.url=jdbc:h2:file:./target/loadtest/review;MODE=PostgreSQL");
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run(springArgs.toArray(String[]::new))) {
+            String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            long t = System.nanoTime();
+            SyntheticData data = new SyntheticData(Long.parseLong(options.get("seed")));
+            SyntheticData.Dataset dataset = data.generate(context,
+                    Integer.parseInt(options.get("users")), Integer.parseInt(options.get("reviews")));
+            System.out.printf("data     : %,d users, %,d reviews, %,d comments in %.1fs%n",
+                    dataset.getUserEmails().size(), dataset.getReviewIds().size(), dataset.getComments(),
+                    (System.nanoTime() - t) / 1e9);
+
+            List<byte[]> images = images(8);
+            long measureFrom = System.nanoTime() + warmup.toNanos();
+            long until = measureFrom + duration.toNanos();
+
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            List<Future<Map<Action, Samples>>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Client client = new Client(base, data, dataset, images, c);
+                results.add(pool.submit(() -> client.run(measureFrom, until)));
+            }
+            Map<Action, Samples> total = new EnumMap<>(Action.class);
+            for (Future<Map<Action, Samples>> f : results) {
+                f.get().forEach((a, s) -> total.computeIfAbsent(a, k -> new Samples()).addAll(s));
+            }
+            pool.shutdown();
+            report(total, duration, clients);
+        }
+    }
+
+    private static void report(Map<Action, Samples> total, Duration duration, int clients) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%-30s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint (" + clients + " clients)", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        long all = 0;
+        for (Action a : Action.values()) {
+            Samples s = total.getOrDefault(a, new Samples());
+            long[] sorted = Arrays.copyOf(s.nanos, s.size);
+            Arrays.sort(sorted);
+            all += s.size;
+            System.out.printf("%-30s %,10d %,8d %,10.1f %10.1f %10.1f %10.1f%n",
+                    a.label, s.size, s.errors, s.size / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("%-30s %,10d %8s %,10.1f%n", "total", all, "", all / seconds);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // 色違いの JPEG（中身が違うので毎回別ファイルとして保存される）
+    private static List<byte[]> images(int count) throws Exception {
+        List<byte[]> images = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(new Color(random.nextInt(0xffffff)));
+            g.fillRect(0, 0, 1280, 960);
+            g.setColor(new Color(random.nextInt(0xffffff)));
+            g.fillOval(200, 150, 800, 600);
+            g.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            images.add(out.toByteArray());
+        }
+        return images;
+    }
+
+    // 1人分の利用者（自分のセッションでログインして操作を続ける）
+    static final class Client {
+        private final String base;
+        private final SyntheticData data;
+        private final SyntheticData.Dataset dataset;
+        private final List<byte[]> images;
+        private final String email;
+        private final Random random;
+        private final SyntheticData.Zipf reviewPopularity;
+        private final HttpClient http = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Client(String base, SyntheticData data, SyntheticData.Dataset dataset, List<byte[]> images, int n) {
+            this.base = base;
+            this.data = data;
+            this.dataset = dataset;
+            this.images = images;
+            this.email = dataset.getUserEmails().get(n % dataset.getUserEmails().size());
+            this.random = new Random(n);
+            this.reviewPopularity = new SyntheticData.Zipf(dataset.getReviewIds().size(), 1.0);
+        }
+
+        Map<Action, Samples> run(long measureFrom, long until) throws Exception {
+            HttpResponse<Void> login = send(form("/login", "username=" + encode(email)
+                    + "&password=" + encode(SyntheticData.PASSWORD)));
+            String location = login.headers().firstValue("Location").orElse("");
+            if (login.statusCode() != 302 || location.contains("error")) {
+                throw new IllegalStateException("Login failed for " + email + ": " + login.statusCode() + " " + location);
+            }
+
+            Map<Action, Samples> samples = new EnumMap<>(Action.class);
+            long now;
+            while ((now = System.nanoTime()) < until) {
+                Action action = Action.pick(random);
+                boolean ok;
+                try {
+                    ok = perform(action);
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long elapsed = System.nanoTime() - now;
+                if (now >= measureFrom) {
+                    Samples s = samples.computeIfAbsent(action, k -> new Samples());
+                    s.add(elapsed);
+                    if (!ok) s.errors++;
+                }
+            }
+            return samples;
+        }
+
+        // 新しいレビューほど見られる
+        private int popularReview() {
+            List<Integer> ids = dataset.getReviewIds();
+            return ids.get(ids.size() - 1 - reviewPopularity.next(random));
+        }
+
+        private boolean perform(Action action) throws Exception {
+            switch (action) {
+                case BROWSE: {
+                    String sort = new String[] { "recent", "rating", "likes" }[random.nextInt(3)];
+                    return ok(send(get("/reviews?sort=" + sort)), 200);
+                }
+                case SEARCH: {
+                    boolean course = random.nextBoolean();
+                    String keyword = course ? data.course(random) : data.teacher(random).split(" ")[0];
+                    return ok(send(get("/reviews?keyword=" + encode(keyword) + "&target=" + (course ? "course" : "teacher"))), 200);
+                }
+                case DETAIL:
+                    return ok(send(get("/reviews/" + popularReview())), 200);
+                case LIKE:
+                    return ok(send(form("/reviews/" + popularReview() + "/like", "")), 302);
+                case COMMENT:
+                    return ok(send(form("/reviews/" + popularReview() + "/comments",
+                            "content=" + encode("参考になりました。") + "&university=" + encode("東都大学")
+                                    + "&faculty=" + encode("理学部") + "&department=" + encode("数学科"))), 302);
+                case UPLOAD:
+                    return ok(send(upload()), 302);
+                default:
+                    return false;
+            }
+        }
+
+        // ログイン画面へ戻されたものは失敗
+        private static boolean ok(HttpResponse<Void> response, int expected) {
+            return response.statusCode() == expected
+                    && !response.headers().firstValue("Location").orElse("").contains("/login");
+        }
+
+        private HttpResponse<Void> send(HttpRequest request) throws Exception {
+            return http.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(base + path)).build();
+        }
+
+        private HttpRequest form(String path, String body) {
+            return HttpRequest.newBuilder(URI.create(base + path))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private HttpRequest upload() {
+            String boundary = "----load" + Long.toHexString(random.nextLong());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            String course = data.course(random);
+            part(body, boundary, "courseName", course);
+            part(body, boundary, "teacherName", data.teacher(random));
+            part(body, boundary, "rating", String.valueOf(1 + random.nextInt(5)));
+            part(body, boundary, "comment", "負荷試験からの投稿です。");
+            body.writeBytes(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"imageFile\"; filename=\"photo.jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(images.get(random.nextInt(images.size())));
+            body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return HttpRequest.newBuilder(URI.create(base + "/reviews"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .build();
+        }
+
+        private static void part(ByteArrayOutputStream body, String boundary, String name, String value) {
+            body.writeBytes(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                    + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String encode(String s) {
+            return URLEncoder.encode(s, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class NameSuggesterTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private NameSuggester suggester;
+
+	@BeforeEach
+	void seed() {
+		// 線形代数 3件、線形計画法 1件、線形解析 2件
+		for (String course : List.of("線形代数", "線形代数", "線形代数", "線形計画法", "線形解析", "線形解析")) {
+			service.addReview(new Review(course, "山田", 3, "x"));
+		}
+		service.addReview(new Review("Algorithms", "Smith", 4, "x"));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void ranksCompletionsByReviewCount() {
+		assertThat(suggester.suggest("線形", "course", 10))
+				.extracting(NameSuggester.Suggestion::name, NameSuggester.Suggestion::reviews)
+				.containsExactly(
+						tuple("線形代数", 3L),
+						tuple("線形解析", 2L),
+						tuple("線形計画法", 1L));
+		assertThat(suggester.suggest("線形", "course", 2)).extracting(NameSuggester.Suggestion::name)
+				.containsExactly("線形代数", "線形解析");
+
+		// 全角・大文字小文字の揺れ、対象の切り替え
+		assertThat(suggester.suggest("ａｌｇ", "all", 10)).extracting(NameSuggester.Suggestion::name)
+				.containsExactly("Algorithms");
+		assertThat(suggester.suggest("山", "course", 10)).isEmpty();
+		assertThat(suggester.suggest("山", "teacher", 10)).singleElement()
+				.satisfies(s -> {
+					assertThat(s.scope()).isEqualTo(RatingStats.TEACHER);
+					assertThat(s.reviews()).isEqualTo(6);
+				});
+		assertThat(suggester.suggest(" ", "all", 10)).isEmpty();
+	}
+
+	@Test
+	void followsEditsAndDeletes() {
+		Review r = repository.findAll().stream()
+				.filter(x -> x.getCourseName().equals("線形計画法")).findFirst().orElseThrow();
+
+		// 新しい名前への変更で候補に加わり、元の名前は件数 0 で消える
+		Review edit = service.getById(r.getId());
+		edit.setCourseName("線形代数演習");
+		service.save(edit);
+		assertThat(suggester.suggest("線形", "course", 10)).extracting(NameSuggester.Suggestion::name)
+				.containsExactly("線形代数", "線形解析", "線形代数演習");
+
+		service.addReview(new Review("線形代数演習", "佐藤", 5, "x"));
+		service.addReview(new Review("線形代数演習", "佐藤", 5, "x"));
+		service.addReview(new Review("線形代数演習", "佐藤", 5, "x"));
+		assertThat(suggester.suggest("線形代数", "course", 1)).extracting(NameSuggester.Suggestion::name)
+				.containsExactly("線形代数演習");
+
+		// 作り直しても同じ結果
+		suggester.rebuild();
+		assertThat(suggester.suggest("線形代数", "course", 1)).extracting(NameSuggester.Suggestion::reviews)
+				.containsExactly(4L);
+
+		service.deleteById(edit.getId());
+		assertThat(suggester.suggest("線形代数演", "course", 10)).extracting(NameSuggester.Suggestion::reviews)
+				.containsExactly(3L);
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "review.fragments.enabled=false")
+@AutoConfigureMockMvc
+class QueryMetricsTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EndpointMetrics metrics;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private UserRepository users;
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void countsStatementsAndRowsPerEndpoint() throws Exception {
+		User user = users.findByEmail("metrics@example.com")
+				.orElseGet(() -> users.save(new User("metrics@example.com", "x", "ROLE_STUDENT", "大学")));
+		Review review = new Review("計量経済学", "西村", 4, "c");
+		review.setUser(user);
+		service.addReview(review);
+		LoginUser principal = LoginUser.from(user);
+		MockHttpSession session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+
+		mvc.perform(get("/reviews/" + review.getId()).session(session)).andExpect(status().isOk());
+		mvc.perform(get("/reviews/" + review.getId()).session(session)).andExpect(status().isOk());
+
+		Map<String, Object> detail = metrics.stats().get("GET /reviews/{id}");
+		assertThat(detail).isNotNull();
+		assertThat((Long) detail.get("requests")).isGreaterThanOrEqualTo(2);
+		assertThat((Long) detail.get("statements")).isPositive();
+		assertThat((Long) detail.get("rows")).isPositive();
+		assertThat((Long) detail.get("p99Millis")).isNotZero();
+	}
+
+	@Test
+	void repeatedStatementsAreFlagged() {
+		assertThat(dataSource).isInstanceOf(QueryInspectingDataSource.class);
+
+		QueryStats stats = QueryStats.begin();
+		try {
+			for (int i = 0; i < 6; i++) {
+				jdbcTemplate.queryForList("select id from review where id = ?", i);
+			}
+			jdbcTemplate.queryForList("select count(*) from review");
+		} finally {
+			QueryStats.end();
+		}
+
+		assertThat(stats.getStatements()).isEqualTo(7);
+		assertThat(stats.getRows()).isEqualTo(1);
+		assertThat(stats.repeated(5)).containsOnlyKeys("select id from review where id = ?");
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class RatingStatsTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private RatingStatsService ratingStats;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void followsCreateEditAndDelete() {
+		Review a = new Review("統計学", "鈴木", 5, "a");
+		Review b = new Review("統計学", "鈴木", 2, "b");
+		service.addReview(a);
+		service.addReview(b);
+
+		RatingSummary course = service.getCourseSummary("統計学");
+		assertThat(course.getCount()).isEqualTo(2);
+		assertThat(course.getAverage()).isEqualTo(3.5);
+		assertThat(course.getHistogram()).containsExactly(0, 1, 0, 0, 1);
+
+		// 評価と教員名を変える
+		Review loaded = service.getById(b.getId());
+		loaded.setRating(4);
+		loaded.setTeacherName("高橋");
+		service.save(loaded);
+
+		assertThat(service.getCourseSummary("統計学").getHistogram()).containsExactly(0, 0, 0, 1, 1);
+		assertThat(service.getTeacherSummary("鈴木").getCount()).isEqualTo(1);
+		assertThat(service.getTeacherSummary("高橋").getAverage()).isEqualTo(4.0);
+
+		service.deleteById(a.getId());
+		assertThat(service.getAverage("統計学")).isEqualTo(4.0);
+		assertThat(service.getTeacherSummary("鈴木").getCount()).isZero();
+	}
+
+	@Test
+	void partialNameSumsMatchingCourses() {
+		service.addReview(new Review("統計学入門", "鈴木", 3, "a"));
+		service.addReview(new Review("応用統計学", "鈴木", 5, "b"));
+
+		assertThat(service.getAverage("統計")).isEqualTo(4.0);
+		// 完全一致する授業があっても、名前に含む授業はすべて入る
+		service.addReview(new Review("統計", "鈴木", 1, "c"));
+		assertThat(service.getAverage("統計")).isEqualTo(3.0);
+		assertThat(service.getCourseSummary("統計").getCount()).isEqualTo(3);
+		assertThat(service.getAverage("存在しない授業")).isZero();
+	}
+
+	@Test
+	void rebuildMatchesIncrementalCounts() {
+		service.addReview(new Review("線形代数Ⅱ", "山本", 1, "a"));
+		service.addReview(new Review("線形代数Ⅱ", "山本", 3, "b"));
+		RatingSummary before = service.getTeacherSummary("山本");
+
+		ratingStats.rebuild();
+
+		RatingSummary after = service.getTeacherSummary("山本");
+		assertThat(after.getCount()).isEqualTo(before.getCount()).isEqualTo(2);
+		assertThat(after.getHistogram()).isEqualTo(before.getHistogram());
+	}
+
+	// 作り直しの途中でコミットされたレビューも集計に残る
+	@Test
+	void reviewCommittedDuringRebuildIsNotLost() throws Exception {
+		service.addReview(new Review("熱力学", "松本", 2, "a"));
+		CountDownLatch counted = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			// 集計行を加算したところで止まる書き込み
+			Future<?> writer = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+				service.addReview(new Review("熱力学", "松本", 4, "b"));
+				counted.countDown();
+				try {
+					commit.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			assertThat(counted.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<?> rebuild = pool.submit(ratingStats::rebuild);
+			Thread.sleep(300);
+			commit.countDown();
+			writer.get(5, TimeUnit.SECONDS);
+			rebuild.get(5, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(service.getCourseSummary("熱力学").getCount()).isEqualTo(2);
+		assertThat(service.getCourseSummary("熱力学").getHistogram()).containsExactly(0, 1, 0, 1, 0);
+	}
+
+	// 新しい名前の集計行は保存と同じトランザクションで作る（同時に作っても1行にそろう）
+	@Test
+	void concurrentFirstReviewsOfANewNameShareOneRow() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> saves = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				int rating = 1 + i % 5;
+				saves.add(pool.submit(() -> service.addReview(new Review("量子力学", "中村" + rating, rating, "x"))));
+			}
+			for (Future<?> f : saves) {
+				f.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(service.getCourseSummary("量子力学").getCount()).isEqualTo(16);
+		assertThat(service.getTeacherSummary("中村").getCount()).isEqualTo(16);
+	}
+}
@@ -0,0 +1,182 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+// プライマリ（review-test）とレプリカ（review-replica）の2つの組み込み H2 で振り分けを確かめる
+// 2つの DB の間で複製はしないので、どちらから読んだかは入っている行で分かる
+@SpringBootTest(properties = {
+		"review.datasource.replica-urls=" + ReadReplicaTests.REPLICA_URL,
+		"review.datasource.replica-username=sa",
+		"review.datasource.replica-password=",
+		"review.datasource.replica-lag-query=select seconds from replica_lag",
+		"review.datasource.replica-max-lag=5s",
+		"review.datasource.replica-check-interval-ms=3600000" })
+@AutoConfigureMockMvc
+class ReadReplicaTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:review-replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+	private static final JdbcTemplate replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReadReplicas replicas;
+
+	@Autowired
+	private JdbcTemplate primaryJdbc;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ReviewVersions versions;
+
+	@Autowired
+	private ReviewFragments fragments;
+
+	@BeforeAll
+	static void createReplica() {
+		// レプリカにも同じスキーマを作っておく（本番ではストリーミング複製で揃う）
+		Flyway.configure().dataSource(REPLICA_URL, "sa", "")
+				.locations("classpath:db/migration/common").load().migrate();
+		replicaJdbc.execute("create table if not exists replica_lag (seconds double precision)");
+		replicaJdbc.execute("delete from replica_lag");
+		replicaJdbc.update("insert into replica_lag values (0)");
+	}
+
+	@BeforeEach
+	void seed() {
+		insert(primaryJdbc, "プライマリの授業");
+		insert(replicaJdbc, "レプリカの授業");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		primaryJdbc.queryForList("select id from review", Integer.class).forEach(service::deleteById);
+		replicaJdbc.update("delete from review");
+		replicaJdbc.update("update replica_lag set seconds = 0");
+		replicas.checkHealth();
+	}
+
+	private static void insert(JdbcTemplate jdbc, String course) {
+		jdbc.update("insert into review (course_name, teacher_name, rating, comment, likes, created_at, updated_at) "
+				+ "values (?, '先生', 3, 'x', 0, current_timestamp, current_timestamp)", course);
+	}
+
+	private List<String> listedCourses() {
+		return service.search(null, "all", "recent", null, 50).getItems().stream()
+				.map(ReviewCard::getCourseName).toList();
+	}
+
+	@Test
+	void readOnlyReadsGoToTheReplicaAndWritesToThePrimary() throws Exception {
+		assertThat(listedCourses()).containsExactly("レプリカの授業");
+
+		service.addReview(new Review("新しい授業", "先生", 4, "y"));
+		assertThat(primaryJdbc.queryForList("select course_name from review order by id", String.class))
+				.containsExactly("プライマリの授業", "新しい授業");
+		assertThat(listedCourses()).containsExactly("レプリカの授業");
+	}
+
+	@Test
+	void laggingReplicaIsTakenOutOfRotation() {
+		replicaJdbc.update("update replica_lag set seconds = 60");
+		replicas.checkHealth();
+		assertThat(listedCourses()).containsExactly("プライマリの授業");
+		assertThat(replicaStats().get("healthy")).isEqualTo(false);
+
+		replicaJdbc.update("update replica_lag set seconds = 1");
+		replicas.checkHealth();
+		assertThat(listedCourses()).containsExactly("レプリカの授業");
+	}
+
+	@Test
+	void userWhoJustWroteReadsFromThePrimary() throws Exception {
+		LoginUser user = new LoginUser(1L, "u@example.com", null, "ROLE_STUDENT", "大学");
+		MockHttpSession session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+		Integer id = primaryJdbc.queryForObject("select max(id) from review", Integer.class);
+
+		long pinned = (Long) replicas.stats().get("pinnedReads");
+		mvc.perform(get("/reviews").session(session)).andExpect(status().isOk());
+		assertThat((Long) replicas.stats().get("pinnedReads")).isEqualTo(pinned);
+
+		mvc.perform(post("/reviews/" + id + "/like").session(session)).andExpect(status().is3xxRedirection());
+		mvc.perform(get("/reviews").session(session)).andExpect(status().isOk());
+		assertThat((Long) replicas.stats().get("pinnedReads")).isGreaterThan(pinned);
+
+		// 別のユーザー（書き込んでいないセッション）はレプリカのまま
+		long afterPinned = (Long) replicas.stats().get("pinnedReads");
+		MockHttpSession other = new MockHttpSession();
+		other.setAttribute("SPRING_SECURITY_CONTEXT", session.getAttribute("SPRING_SECURITY_CONTEXT"));
+		mvc.perform(get("/reviews").session(other)).andExpect(status().isOk());
+		assertThat((Long) replicas.stats().get("pinnedReads")).isEqualTo(afterPinned);
+	}
+
+	// 変わった直後のレビューは、書き込んでいないユーザーでもプライマリで読み、描画済み HTML・ETag を作らない
+	// （レプリカの古い内容を新しいバージョンで覚えると、次に変わるまで誰にでも 304 で返してしまう）
+	@Test
+	void justChangedReviewIsReadFromThePrimaryAndNotCached() throws Exception {
+		Integer id = primaryJdbc.queryForObject("select max(id) from review", Integer.class);
+		replicaJdbc.update("insert into review (id, course_name, teacher_name, rating, comment, likes, created_at, updated_at) "
+				+ "values (?, '古い授業名', '先生', 3, 'x', 0, current_timestamp, current_timestamp)", id);
+		primaryJdbc.update("update review set course_name = '新しい授業名' where id = ?", id);
+		versions.bump(id);
+
+		LoginUser user = new LoginUser(2L, "reader@example.com", null, "ROLE_STUDENT", "大学");
+		MockHttpSession reader = new MockHttpSession();
+		reader.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+		long cached = fragments.stats().get("fragments.details").get("size");
+
+		mvc.perform(get("/reviews/" + id).session(reader))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("ETag"))
+				.andExpect(content().string(containsString("新しい授業名")));
+		assertThat(fragments.stats().get("fragments.details").get("size")).isEqualTo(cached);
+	}
+
+	// 編集・コメントのために読むエンティティは、レプリカが遅れていてもプライマリの値
+	@Test
+	void reviewsLoadedForWritesComeFromThePrimary() {
+		Integer id = primaryJdbc.queryForObject("select max(id) from review", Integer.class);
+		replicaJdbc.update("insert into review (id, course_name, teacher_name, rating, comment, likes, created_at, updated_at) "
+				+ "values (?, '古い授業名', '先生', 1, 'x', 0, current_timestamp, current_timestamp)", id);
+
+		Review review = service.getForUpdate(id);
+		assertThat(review.getCourseName()).isEqualTo("プライマリの授業");
+		assertThat(review.getLoadedRating()).isEqualTo(3);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> replicaStats() {
+		return ((List<Map<String, Object>>) replicas.stats().get("replicas")).get(0);
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewApiTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private LikeCounter likeCounter;
+
+	@Autowired
+	private ReviewVersions versions;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	private MockHttpSession session;
+
+	@BeforeEach
+	void setUp() {
+		User user = users.findByEmail("api@example.com")
+				.orElseGet(() -> users.save(new User("api@example.com", "secret-hash", "ROLE_STUDENT", "大学")));
+		for (int i = 1; i <= 5; i++) {
+			Review r = new Review("データ構造" + i, "伊藤", i, "c" + i);
+			r.setUser(user);
+			service.addReview(r);
+		}
+		LoginUser principal = LoginUser.from(user);
+		session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void streamsFlatJsonArray() throws Exception {
+		MockHttpServletResponse res = perform(get("/api/reviews").accept("application/json"));
+
+		JsonNode array = objectMapper.readTree(res.getContentAsString());
+		assertThat(array.size()).isEqualTo(5);
+		assertThat(array.get(0).get("userId").isNumber()).isTrue();
+		assertThat(res.getContentAsString()).doesNotContain("password").doesNotContain("secret-hash");
+		assertThat(res.getHeader(ReviewApiController.SYNC_HEADER)).isNotBlank();
+	}
+
+	@Test
+	void ndjsonPagesByCursorAndSince() throws Exception {
+		List<String> first = lines(perform(get("/api/reviews").accept(ReviewApiController.NDJSON).param("limit", "2")));
+		assertThat(first).hasSize(2);
+
+		int lastId = objectMapper.readTree(first.get(1)).get("id").asInt();
+		List<String> rest = lines(perform(get("/api/reviews").accept(ReviewApiController.NDJSON)
+				.param("cursor", String.valueOf(lastId))));
+		assertThat(rest).hasSize(3);
+
+		List<String> none = lines(perform(get("/api/reviews").accept(ReviewApiController.NDJSON)
+				.param("since", "2999-01-01T00:00:00")));
+		assertThat(none).isEmpty();
+	}
+
+	private MockHttpServletResponse perform(MockHttpServletRequestBuilder builder) throws Exception {
+		MvcResult started = mvc.perform(builder.session(session))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return mvc.perform(asyncDispatch(started)).andReturn().getResponse();
+	}
+
+	private static List<String> lines(MockHttpServletResponse res) throws Exception {
+		return res.getContentAsString().lines().filter(l -> !l.isBlank()).toList();
+	}
+
+	@Test
+	void likeChecksTheReviewExistsBeforeCounting() throws Exception {
+		long global = versions.global();
+		mvc.perform(post("/api/reviews/999999/like").session(session))
+				.andExpect(status().isNotFound());
+		mvc.perform(post("/reviews/999999/like").session(session))
+				.andExpect(status().isNotFound());
+		assertThat(likeCounter.pending(999999)).isZero();
+		assertThat(versions.global()).isEqualTo(global);
+
+		// 索引に無いが DB にはあるレビューは DB の値から数える
+		Review review = repository.findAll().get(0);
+		searchIndex.remove(review.getId());
+		mvc.perform(post("/api/reviews/" + review.getId() + "/like").session(session))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.likes").value(review.getLikes() + 1));
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewETagsTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private CommentRepository comments;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private EndpointMetrics metrics;
+
+	private User user;
+	private MockHttpSession session;
+
+	@BeforeEach
+	void login() {
+		user = users.findByEmail("etag@example.com")
+				.orElseGet(() -> users.save(new User("etag@example.com", "x", "ROLE_STUDENT", "大学")));
+		LoginUser principal = LoginUser.from(user);
+		session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		comments.deleteAll();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	private String etagOf(String path) throws Exception {
+		return mvc.perform(get(path).session(session))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "private, no-cache"))
+				.andReturn().getResponse().getHeader("ETag");
+	}
+
+	private long statements(String endpoint) {
+		var stats = metrics.stats().get(endpoint);
+		return stats == null ? 0 : (Long) stats.get("statements");
+	}
+
+	@Test
+	void listIsNotModifiedUntilSomethingChanges() throws Exception {
+		Review review = new Review("微分積分", "佐藤", 4, "a");
+		service.addReview(review);
+
+		String etag = etagOf("/reviews");
+		assertThat(etag).startsWith("W/\"");
+
+		long before = statements("GET /reviews");
+		mvc.perform(get("/reviews").session(session).header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+		assertThat(statements("GET /reviews")).isEqualTo(before);
+
+		// いいねは描画済みカードを捨てないが、一覧の ETag は変わる
+		service.like(review.getId());
+		mvc.perform(get("/reviews").session(session).header("If-None-Match", etag))
+				.andExpect(status().isOk());
+		assertThat(etagOf("/reviews")).isNotEqualTo(etag);
+	}
+
+	@Test
+	void reviewEtagFollowsOnlyThatReview() throws Exception {
+		Review review = new Review("物理学", "田中", 5, "b");
+		Review other = new Review("化学", "鈴木", 3, "c");
+		service.addReview(review);
+		service.addReview(other);
+		String page = "/reviews/" + review.getId();
+		String api = "/api/reviews/" + review.getId();
+
+		String pageTag = etagOf(page);
+		String apiTag = etagOf(api);
+
+		long before = statements("GET /api/reviews/{id}");
+		mvc.perform(get(api).session(session).header("If-None-Match", apiTag))
+				.andExpect(status().isNotModified());
+		assertThat(statements("GET /api/reviews/{id}")).isEqualTo(before);
+
+		// 別のレビューの変更では変わらない
+		service.like(other.getId());
+		mvc.perform(get(page).session(session).header("If-None-Match", pageTag))
+				.andExpect(status().isNotModified());
+
+		service.addComment(service.getById(review.getId()), user, "質問です", "大学", "理学部", "物理学科");
+		mvc.perform(get(page).session(session).header("If-None-Match", pageTag))
+				.andExpect(status().isOk());
+		mvc.perform(get(api).session(session).header("If-None-Match", apiTag))
+				.andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,217 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// 定期の送信は止めておき、flush() を呼んだときだけ送る
+@SpringBootTest(properties = "review.events.flush-interval-ms=3600000")
+@AutoConfigureMockMvc
+class ReviewEventsTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ReviewEvents events;
+
+	@Autowired
+	private ReviewFragments fragments;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private CommentRepository comments;
+
+	@Autowired
+	private UserRepository users;
+
+	private MockHttpSession session;
+
+	@BeforeEach
+	void login() {
+		User user = users.findByEmail("events@example.com")
+				.orElseGet(() -> users.save(new User("events@example.com", "x", "ROLE_STUDENT", "大学")));
+		LoginUser principal = LoginUser.from(user);
+		session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		comments.deleteAll();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	private MockHttpServletResponse subscribe(Integer... ids) throws Exception {
+		String joined = Arrays.stream(ids).map(String::valueOf).collect(Collectors.joining(","));
+		return mvc.perform(get("/api/reviews/events").param("ids", joined).session(session))
+				.andExpect(request().asyncStarted())
+				.andReturn().getResponse();
+	}
+
+	// 送信は別スレッドなので、届くまで待つ
+	private String awaitEvents(MockHttpServletResponse stream, String name, int count) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (true) {
+			// text/event-stream は常に UTF-8
+			String body = stream.getContentAsString(StandardCharsets.UTF_8);
+			if (count(body, "event:" + name) >= count || System.nanoTime() > deadline) {
+				return body;
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	private static int count(String body, String needle) {
+		int n = 0;
+		for (int i = body.indexOf(needle); i >= 0; i = body.indexOf(needle, i + 1)) n++;
+		return n;
+	}
+
+	@Test
+	void likesAreCoalescedIntoOneEventPerFlush() throws Exception {
+		Review hot = new Review("人気の授業", "山本", 5, "a");
+		Review quiet = new Review("静かな授業", "小林", 3, "b");
+		service.addReview(hot);
+		service.addReview(quiet);
+		MockHttpServletResponse stream = subscribe(hot.getId(), quiet.getId());
+
+		for (int i = 1; i <= 3; i++) {
+			mvc.perform(post("/api/reviews/" + hot.getId() + "/like").session(session))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.likes").value(i));
+		}
+		events.flush();
+
+		String body = awaitEvents(stream, "likes", 1);
+		assertThat(count(body, "event:likes")).isEqualTo(1);
+		assertThat(body).contains("{\"" + hot.getId() + "\":3}");
+	}
+
+	@Test
+	void newCommentsAndRepliesArePushedAsRenderedHtml() throws Exception {
+		Review review = new Review("有機化学", "林", 4, "c");
+		service.addReview(review);
+		MockHttpServletResponse stream = subscribe(review.getId());
+
+		String json = mvc.perform(post("/api/reviews/" + review.getId() + "/comments").session(session)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"content\":\"試験範囲は？\",\"university\":\"大学\",\"faculty\":\"理学部\",\"department\":\"化学科\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parentId").isEmpty())
+				.andReturn().getResponse().getContentAsString();
+		Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(json);
+		assertThat(id.find()).isTrue();
+
+		mvc.perform(post("/api/reviews/" + review.getId() + "/comments").session(session)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"content\":\"5章までです\",\"university\":\"大学\",\"faculty\":\"理学部\",\"department\":\"化学科\","
+								+ "\"parentId\":" + id.group(1) + "}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parentId").value(Integer.parseInt(id.group(1))));
+		mvc.perform(post("/api/reviews/" + review.getId() + "/comments").session(session)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"content\":\" \"}"))
+				.andExpect(status().isBadRequest());
+		events.flush();
+
+		String body = awaitEvents(stream, "comment", 2);
+		assertThat(count(body, "event:comment")).isEqualTo(2);
+		assertThat(body).contains("試験範囲は？").contains("5章までです").contains("events@example.com");
+	}
+
+	@Test
+	void streamsAreCappedAndSlowStreamsAreToldToResync() {
+		ReviewEvents small = new ReviewEvents(fragments, 1, 2, 1, Duration.ofMinutes(1), Duration.ofSeconds(30),
+				Duration.ofSeconds(5));
+		try {
+			assertThat(small.subscribe(List.of(1))).isNotNull();
+			assertThat(small.subscribe(List.of(1))).isNull();
+
+			// 送っていない分が max-pending を超えたら捨てて resync にする
+			CommentView c = new CommentView(1L, "a@example.com", "x", null, "u", "f", "d");
+			for (int i = 0; i < 3; i++) {
+				small.commented(1, null, c);
+			}
+			assertThat(small.stats()).containsEntry("rejected", 1L).containsEntry("resyncs", 1L);
+		} finally {
+			small.shutdown();
+		}
+	}
+
+	// 送信スレッド1本で、1つ目の接続の送信が止まっても2つ目には届く
+	@Test
+	void stalledSendIsDroppedWithoutBlockingOtherStreams() throws Exception {
+		CountDownLatch unblock = new CountDownLatch(1);
+		CountDownLatch delivered = new CountDownLatch(1);
+		int[] created = { 0 };
+		ReviewEvents oneSender = new ReviewEvents(fragments, 10, 10, 1, Duration.ofMinutes(1), Duration.ofSeconds(30),
+				Duration.ofMillis(100)) {
+			@Override
+			SseEmitter newEmitter(long timeoutMillis) {
+				boolean stalls = created[0]++ == 0;
+				return new SseEmitter(timeoutMillis) {
+					@Override
+					public void send(SseEventBuilder builder) {
+						if (!stalls) {
+							delivered.countDown();
+							return;
+						}
+						try {
+							// 読まないクライアントへの書き込み
+							unblock.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				};
+			}
+		};
+		try {
+			oneSender.subscribe(List.of(1));
+			oneSender.subscribe(List.of(1));
+			oneSender.liked(1, 1);
+			oneSender.flush();
+
+			Thread.sleep(200);
+			oneSender.flush();
+			assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(oneSender.stats()).containsEntry("stalled", 1L).containsEntry("streams", 1);
+		} finally {
+			unblock.countDown();
+			oneSender.shutdown();
+		}
+	}
+}
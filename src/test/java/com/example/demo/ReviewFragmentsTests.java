@@ -0,0 +1,106 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class ReviewFragmentsTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private CommentRepository comments;
+
+	@Autowired
+	private ReviewFragments fragments;
+
+	@Autowired
+	private ReviewVersions versions;
+
+	@AfterEach
+	void cleanUp() {
+		comments.deleteAll();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	private ReviewCard card(Integer id) {
+		return service.search(null, "all", "recent", null, 50).getItems().stream()
+				.filter(c -> c.getId().equals(id))
+				.findFirst().orElseThrow();
+	}
+
+	@Test
+	void cardIsRenderedOnceUntilTheReviewChanges() {
+		Review review = new Review("熱力学", "岡田", 4, "わかりやすい");
+		service.addReview(review);
+
+		long hits = fragments.stats().get("fragments.cards").get("hits");
+		String first = fragments.cards(List.of(card(review.getId())), versions.global()).get(review.getId());
+		String second = fragments.cards(List.of(card(review.getId())), versions.global()).get(review.getId());
+
+		assertThat(first).contains("熱力学").contains("/reviews/" + review.getId());
+		assertThat(second).isSameAs(first);
+		assertThat(fragments.stats().get("fragments.cards").get("hits")).isEqualTo(hits + 1);
+
+		Review edited = service.getById(review.getId());
+		edited.setCourseName("統計力学");
+		service.save(edited);
+
+		String third = fragments.cards(List.of(card(review.getId())), versions.global()).get(review.getId());
+		assertThat(third).contains("統計力学").doesNotContain("熱力学");
+	}
+
+	@Test
+	void cardReadBeforeAChangeIsNotCached() {
+		Review review = new Review("線形代数", "森", 3, "c");
+		service.addReview(review);
+		long seen = versions.global();
+		ReviewCard stale = card(review.getId());
+		versions.bump(review.getId());
+
+		fragments.cards(List.of(stale), seen);
+		long misses = fragments.stats().get("fragments.cards").get("misses");
+		fragments.cards(List.of(card(review.getId())), versions.global());
+
+		assertThat(fragments.stats().get("fragments.cards").get("misses")).isEqualTo(misses + 1);
+	}
+
+	@Test
+	void cachedDetailSkipsLoadingUntilACommentIsAdded() {
+		Review review = new Review("有機化学", "林", 5, "本文");
+		service.addReview(review);
+		AtomicInteger loads = new AtomicInteger();
+
+		ReviewFragments.Detail first = fragments.detail(review.getId(), versions.global(),
+				() -> { loads.incrementAndGet(); return service.getById(review.getId()); },
+				service::getComments);
+		ReviewFragments.Detail second = fragments.detail(review.getId(), versions.global(),
+				() -> { loads.incrementAndGet(); return service.getById(review.getId()); },
+				service::getComments);
+
+		assertThat(first.getReviewHtml()).contains("有機化学").contains("本文");
+		assertThat(second).isSameAs(first);
+		assertThat(loads).hasValue(1);
+
+		Review loaded = service.getById(review.getId());
+		service.addComment(loaded, loaded.getUser(), "参考になった", "A大学", "理学部", "化学科");
+		ReviewFragments.Detail third = fragments.detail(review.getId(), versions.global(),
+				() -> { loads.incrementAndGet(); return service.getById(review.getId()); },
+				service::getComments);
+
+		assertThat(loads).hasValue(2);
+		assertThat(third.getComments()).hasSize(1);
+		assertThat(third.getComments().get(0).getHtml()).contains("参考になった");
+	}
+}
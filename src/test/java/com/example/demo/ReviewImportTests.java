@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "review.import.batch-size=2")
+@AutoConfigureMockMvc
+class ReviewImportTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private UserRepository users;
+
+	private MockHttpSession session;
+
+	@BeforeEach
+	void login() {
+		users.findByEmail("import@example.com")
+				.orElseGet(() -> users.save(new User("import@example.com", "x", "ROLE_STUDENT", "大学")));
+		User admin = users.findByEmail("import-admin@example.com")
+				.orElseGet(() -> users.save(new User("import-admin@example.com", "x", "ROLE_ADMIN", "大学")));
+		session = sessionOf(admin);
+	}
+
+	private static MockHttpSession sessionOf(User user) {
+		LoginUser principal = LoginUser.from(user);
+		MockHttpSession session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+		return session;
+	}
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void importsCsvAndReportsBadRows() throws Exception {
+		String csv = String.join("\n",
+				"courseName,teacherName,rating,comment,userEmail",
+				"有機化学,小林,5,\"良い, とても\",import@example.com",
+				"有機化学,小林,3,\"複数行の\n感想\",",
+				"有機化学,小林,9,範囲外,",
+				"有機化学,小林,4,誰？,nobody@example.com",
+				"無機化学,加藤,2,ふつう,import@example.com");
+
+		List<JsonNode> events = importFile("text/csv", csv);
+
+		assertThat(events).filteredOn(e -> e.get("type").asString().equals("error"))
+				.extracting(e -> e.get("line").asLong())
+				.containsExactly(5L, 6L); // 3〜4行目は1レコード
+		JsonNode done = events.get(events.size() - 1);
+		assertThat(done.get("type").asString()).isEqualTo("done");
+		assertThat(done.get("imported").asLong()).isEqualTo(3);
+		assertThat(done.get("failed").asLong()).isEqualTo(2);
+
+		// 集計・検索インデックスにも入っている
+		assertThat(service.getCourseSummary("有機化学").getCount()).isEqualTo(2);
+		assertThat(service.search("無機", "all", "recent", null, 20).getItems()).hasSize(1);
+		assertThat(service.search("有機", "all", "recent", null, 20).getItems())
+				.extracting(ReviewCard::getCommentPreview)
+				.contains("良い, とても", "複数行の\n感想");
+	}
+
+	@Test
+	void importsNdjson() throws Exception {
+		String ndjson = "{\"courseName\":\"音楽史\",\"teacherName\":\"森\",\"rating\":4,\"likes\":7}\n"
+				+ "not json\n"
+				+ "{\"courseName\":\"音楽史\",\"teacherName\":\"森\",\"rating\":2,\"createdAt\":\"2024-04-01T10:00:00\"}\n";
+
+		List<JsonNode> events = importFile(ReviewApiController.NDJSON, ndjson);
+
+		JsonNode done = events.get(events.size() - 1);
+		assertThat(done.get("imported").asLong()).isEqualTo(2);
+		assertThat(done.get("failed").asLong()).isEqualTo(1);
+		assertThat(service.getAverage("音楽史")).isEqualTo(3.0);
+	}
+
+	// 学生は他人の名前・いいね数・日時で入れられないよう、取り込みそのものができない
+	@Test
+	void studentsCannotImport() throws Exception {
+		User student = users.findByEmail("import@example.com").orElseThrow();
+		mvc.perform(post("/api/reviews/import").session(sessionOf(student))
+						.contentType(ReviewApiController.NDJSON)
+						.content("{\"courseName\":\"音楽史\",\"teacherName\":\"森\",\"rating\":5,\"likes\":999,"
+								+ "\"userEmail\":\"import-admin@example.com\"}\n"))
+				.andExpect(status().isForbidden());
+		assertThat(repository.count()).isZero();
+	}
+
+	private List<JsonNode> importFile(String contentType, String body) throws Exception {
+		String response = mvc.perform(post("/api/reviews/import").session(session)
+						.contentType(contentType)
+						.content(body.getBytes(StandardCharsets.UTF_8)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		return response.lines().map(objectMapper::readTree).toList();
+	}
+}
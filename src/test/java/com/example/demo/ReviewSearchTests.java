@@ -0,0 +1,172 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest
+class ReviewSearchTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private ReviewSearchIndex index;
+
+	@BeforeEach
+	void seed() {
+		for (int i = 0; i < 23; i++) {
+			Review r = new Review(i % 2 == 0 ? "線形代数" : "微分積分", "山田" + (i % 3), 1 + i % 5, "c" + i);
+			r.setLikes(i % 4);
+			service.addReview(r);
+		}
+	}
+
+	@AfterEach
+	void cleanUp() {
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void pagesForwardAndBackwardInSortOrder() {
+		for (String sort : List.of("recent", "rating", "likes")) {
+			List<Review> expected = new ArrayList<>(repository.findAll());
+			expected.sort(comparator(sort));
+
+			List<Integer> forward = new ArrayList<>();
+			List<String> cursors = new ArrayList<>();
+			String cursor = null;
+			do {
+				CursorPage<ReviewCard> page = service.search(null, "all", sort, cursor, 5);
+				assertThat(page.getItems()).hasSizeLessThanOrEqualTo(5);
+				page.getItems().forEach(r -> forward.add(r.getId()));
+				cursors.add(page.getPrevCursor());
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+			assertThat(forward).isEqualTo(expected.stream().map(Review::getId).toList());
+
+			// 最終ページの「前へ」で一つ前のページに戻れる
+			String prev = cursors.get(cursors.size() - 1);
+			CursorPage<ReviewCard> back = service.search(null, "all", sort, prev, 5);
+			assertThat(back.getItems()).extracting(ReviewCard::getId).isEqualTo(forward.subList(15, 20));
+			assertThat(back.isHasNext()).isTrue();
+			assertThat(back.isHasPrev()).isTrue();
+		}
+	}
+
+	// いいねは索引の lock を取らないので、走っている検索（読み取りロック）を待たない
+	@Test
+	void likesDoNotWaitForRunningSearches() throws Exception {
+		Review r = repository.findAll().get(0);
+		ReadWriteLock lock = (ReadWriteLock) ReflectionTestUtils.getField(index, "lock");
+		lock.readLock().lock();
+		try {
+			int likes = CompletableFuture.supplyAsync(() -> service.like(r.getId())).get(5, TimeUnit.SECONDS);
+			assertThat(likes).isEqualTo(r.getLikes() + 1);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// 2ページ目以降も (rating, id) の索引をカーソルの位置から読めるよう、OR の外に rating <= ? がある
+	@Test
+	void seekPredicateBoundsTheIndexRange() {
+		String cursor = service.search(null, "all", "rating", null, 5).getNextCursor();
+		QueryStats stats = QueryStats.begin();
+		try {
+			service.search(null, "all", "rating", cursor, 5);
+		} finally {
+			QueryStats.end();
+		}
+		assertThat(stats.repeated(1).keySet())
+				.anyMatch(sql -> sql.matches("(?s).*where\\s+\\w+\\.rating\\s*<=\\s*\\?\\s+and\\s*\\(.*"));
+	}
+
+	@Test
+	void keywordSearchIsPaged() {
+		CursorPage<ReviewCard> first = service.search("線形", "course", "rating", null, 10);
+		assertThat(first.getItems()).hasSize(10).allMatch(r -> r.getCourseName().equals("線形代数"));
+		CursorPage<ReviewCard> second = service.search("線形", "course", "rating", first.getNextCursor(), 10);
+		assertThat(second.getItems()).hasSize(2);
+		assertThat(second.isHasNext()).isFalse();
+	}
+
+	@Test
+	void indexedSearchMatchesSubstringsAcrossBothNames() {
+		// 1文字・全角英数・大文字小文字の揺れ
+		Review r = new Review("ＡＩ入門", "佐藤", 5, "x");
+		service.addReview(r);
+		assertThat(ids(service.search("数", "course", "recent", null, 50))).hasSize(12);
+		assertThat(ids(service.search("ai入", "course", "recent", null, 50))).containsExactly(r.getId());
+		assertThat(ids(service.search("佐藤", "course", "recent", null, 50))).isEmpty();
+		assertThat(ids(service.search("田1", "teacher", "recent", null, 50))).hasSize(8);
+
+		// 授業名と教員名の両方に当たっても1件として数える
+		Review both = new Review("山田ゼミ", "山田0", 3, "y");
+		service.addReview(both);
+		assertThat(ids(service.search("山田", "all", "recent", null, 50))).hasSize(24).doesNotHaveDuplicates();
+
+		// 更新・削除が索引に反映される
+		r.setCourseName("機械学習");
+		service.save(r);
+		assertThat(ids(service.search("ai", "all", "recent", null, 50))).isEmpty();
+		assertThat(ids(service.search("機械", "all", "recent", null, 50))).containsExactly(r.getId());
+		service.deleteById(r.getId());
+		assertThat(ids(service.search("機械", "all", "recent", null, 50))).isEmpty();
+	}
+
+	@Test
+	void indexedSearchPagesBackward() {
+		List<Integer> forward = new ArrayList<>();
+		String prev = null;
+		String cursor = null;
+		do {
+			CursorPage<ReviewCard> page = service.search("山田", "teacher", "likes", cursor, 4);
+			forward.addAll(ids(page));
+			prev = page.getPrevCursor();
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		assertThat(forward).hasSize(23).doesNotHaveDuplicates();
+
+		CursorPage<ReviewCard> back = service.search("山田", "teacher", "likes", prev, 4);
+		assertThat(ids(back)).isEqualTo(forward.subList(16, 20));
+	}
+
+	@Test
+	void ignoresBrokenOrForeignCursor() {
+		CursorPage<ReviewCard> first = service.search(null, "all", "recent", null, 5);
+		assertThat(service.search(null, "all", "recent", "???", 5).getItems())
+				.extracting(ReviewCard::getId).isEqualTo(first.getItems().stream().map(ReviewCard::getId).toList());
+		CursorPage<ReviewCard> rating = service.search(null, "all", "rating", null, 5);
+		assertThat(service.search(null, "all", "recent", rating.getNextCursor(), 5).getItems())
+				.extracting(ReviewCard::getId).isEqualTo(first.getItems().stream().map(ReviewCard::getId).toList());
+	}
+
+	private static List<Integer> ids(CursorPage<ReviewCard> page) {
+		return page.getItems().stream().map(ReviewCard::getId).toList();
+	}
+
+	private Comparator<Review> comparator(String sort) {
+		Comparator<Review> byId = Comparator.comparing(Review::getId).reversed();
+		return switch (sort) {
+			case "rating" -> Comparator.comparingInt(Review::getRating).reversed().thenComparing(byId);
+			case "likes" -> Comparator.comparingInt(Review::getLikes).reversed().thenComparing(byId);
+			default -> byId;
+		};
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class SchemaIndexCheckTests {
+
+	@Autowired
+	private SchemaIndexCheck check;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	void migrationsCreateEveryExpectedIndex() throws Exception {
+		assertThat(check.missing()).isEmpty();
+	}
+
+	@Test
+	void failsWhenAnIndexIsDropped() throws Exception {
+		jdbc.execute("drop index idx_comment_review");
+		try {
+			assertThat(check.missing()).containsExactly("comment.idx_comment_review");
+			assertThatThrownBy(check::check)
+					.isInstanceOf(IllegalStateException.class)
+					.hasMessageContaining("comment.idx_comment_review");
+		} finally {
+			jdbc.execute("create index idx_comment_review on comment (review_id, id)");
+		}
+	}
+
+	// Flyway を入れる前（ddl-auto=update の頃）の DB：V1 は baseline 扱いで飛ばされ、足りない分は V2 以降が作る
+	// 表は baseline の頃のエンティティ（Review・User・Comment）から ddl-auto が作った形のまま
+	@Test
+	void baselinedDatabaseIsMigratedToTheCurrentSchema() throws Exception {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:baseline-upgrade;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+		try (Connection c = dataSource.getConnection(); Statement st = c.createStatement()) {
+			st.execute("create table users (id bigint generated by default as identity, email varchar(255) not null unique,"
+					+ " password varchar(255) not null, role varchar(255) not null, university varchar(255), primary key (id))");
+			st.execute("create table review (id integer generated by default as identity, comment varchar(255),"
+					+ " course_name varchar(255), created_at timestamp(6), image_path varchar(255), likes integer not null,"
+					+ " rating integer not null, teacher_name varchar(255), user_id bigint, primary key (id))");
+			st.execute("create table comment (id bigint generated by default as identity, content varchar(500) not null,"
+					+ " created_at timestamp(6), department varchar(100) not null, faculty varchar(100) not null,"
+					+ " university varchar(100) not null, parent_comment_id bigint, review_id integer, user_id bigint,"
+					+ " primary key (id))");
+			st.execute("alter table review add constraint fk_baseline_review_user foreign key (user_id) references users");
+			st.execute("alter table comment add constraint fk_baseline_comment_parent foreign key (parent_comment_id) references comment");
+			st.execute("alter table comment add constraint fk_baseline_comment_review foreign key (review_id) references review");
+			st.execute("alter table comment add constraint fk_baseline_comment_user foreign key (user_id) references users");
+			st.execute("insert into review (course_name, teacher_name, rating, comment, likes, created_at)"
+					+ " values ('線形代数', '田中', 4, 'x', 2, timestamp '2024-04-01 10:00:00')");
+		}
+
+		Flyway.configure()
+				.dataSource(dataSource)
+				.locations("classpath:db/migration/common")
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load()
+				.migrate();
+
+		try (Connection c = dataSource.getConnection();
+			 ResultSet tables = c.getMetaData().getTables(null, null, "RATING_STATS", null);
+			 ResultSet columns = c.getMetaData().getColumns(null, null, "REVIEW", "TRENDING_SCORE")) {
+			assertThat(tables.next()).isTrue();
+			assertThat(columns.next()).isTrue();
+		}
+		// 既存の行の updated_at は作成日時で埋まる
+		assertThat(new JdbcTemplate(dataSource).queryForObject(
+				"select count(*) from review where updated_at = created_at", Integer.class)).isEqualTo(1);
+		assertThat(new SchemaIndexCheck(dataSource, "fail").missing()).isEmpty();
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "review.likes.flush-interval-ms=3600000")
+class SecondLevelCacheTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private LikeCounter likeCounter;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		likeCounter.flush();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	@Test
+	void repeatedReadsHitTheCache() {
+		Review review = new Review("化学", "石井", 4, "c");
+		service.addReview(review);
+		service.getById(review.getId());
+		statistics.clear();
+
+		service.getById(review.getId());
+		service.getById(review.getId());
+
+		assertThat(statistics.getDomainDataRegionStatistics(Review.class.getName()).getHitCount())
+				.isGreaterThanOrEqualTo(2);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void likesAndEditsAreNotServedStale() {
+		Review review = new Review("物理", "石井", 3, "c");
+		service.addReview(review);
+		Integer id = review.getId();
+		service.getById(id);
+
+		service.like(id);
+		likeCounter.flush();
+		assertThat(service.getById(id).getLikes()).isEqualTo(1);
+
+		// 未反映のいいねを含んだまま編集を保存しても、キャッシュには DB の値が入り直す
+		service.like(id);
+		Review loaded = service.getById(id);
+		loaded.setComment("edited");
+		likeCounter.flush();
+		service.save(loaded);
+		assertThat(service.getById(id).getLikes()).isEqualTo(2);
+		assertThat(service.getById(id).getComment()).isEqualTo("edited");
+
+		service.deleteById(id);
+		assertThat(repository.findById(id)).isEmpty();
+	}
+
+	@Test
+	void findByEmailIsCached() {
+		users.findByEmail("cache@example.com")
+				.orElseGet(() -> users.save(new User("cache@example.com", "x", "ROLE_STUDENT", "大学")));
+		statistics.clear();
+
+		users.findByEmail("cache@example.com");
+		users.findByEmail("cache@example.com");
+
+		assertThat(statistics.getQueryCacheHitCount()).isGreaterThanOrEqualTo(1);
+	}
+}
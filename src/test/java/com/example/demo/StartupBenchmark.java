@@ -0,0 +1,153 @@
+package com.example.demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.h2.Driver;
+
+// 起動の速さの比較（手で動かすベンチマーク。テストとしては実行されない）
+//   mvn -Pfast-startup package exec:exec@cds
+//   mvn test-compile
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//        com.example.demo.StartupBenchmark [回数]
+// ・アプリを別の JVM で起動し直し、起動の仕方ごとに次の2つを測る（回数分の中央値）
+//     ready      … プロセスを起動してから GET /login が初めて 200 を返すまで
+//     first page … さらに登録・ログインして GET /reviews が初めて返るまで（遅延初期化のぶんはここに出る）
+// ・DB は組み込み H2（PostgreSQL モード）。Hikari・Flyway・Hibernate の検証は本番と同じく全部通る
+// ・CDS アーカイブ（target/fast-startup/app.jsa）は H2 なしで学習したもの。実行時はクラスパスの末尾に足すだけなので使える。
+//   学習と同じ相対パス（app.jar）でないと黙って使われないので、target/fast-startup の中で -Xshare:on で起動する
+public class StartupBenchmark {
+
+    private record Mode(String name, List<String> command) {}
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Path target = Path.of("target").toAbsolutePath();
+        Path fatJar = target.resolve("demo-0.0.1-SNAPSHOT.jar");
+        Path extracted = target.resolve("fast-startup");
+        if (!Files.exists(fatJar) || !Files.exists(extracted.resolve("app.jsa"))) {
+            throw new IllegalStateException("Run 'mvn -Pfast-startup package exec:exec@cds' first");
+        }
+        String h2 = new File(Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String app = "app.jar" + File.pathSeparator + h2;
+
+        List<Mode> modes = List.of(
+                new Mode("fat jar", List.of(java, "-cp", fatJar + File.pathSeparator + h2,
+                        "org.springframework.boot.loader.launch.JarLauncher")),
+                new Mode("extracted", List.of(java, "-cp", app, DemoApplication.class.getName())),
+                new Mode("+ AOT", List.of(java, "-Dspring.aot.enabled=true",
+                        "-cp", app, DemoApplication.class.getName())),
+                new Mode("+ AOT + CDS", List.of(java, "-XX:SharedArchiveFile=app.jsa", "-Xshare:on",
+                        "-Dspring.aot.enabled=true", "-cp", app, DemoApplication.class.getName())),
+                new Mode("+ AOT + CDS + lazy", List.of(java, "-XX:SharedArchiveFile=app.jsa", "-Xshare:on",
+                        "-Dspring.aot.enabled=true", "-Dspring.main.lazy-initialization=true",
+                        "-cp", app, DemoApplication.class.getName())));
+
+        System.out.printf("%-20s %12s %12s%n", "", "ready", "first page");
+        for (Mode mode : modes) {
+            long[] ready = new long[runs];
+            long[] firstPage = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] t = measure(mode, extracted, target.resolve("startup-benchmark.log"));
+                ready[i] = t[0];
+                firstPage[i] = t[1];
+            }
+            System.out.printf("%-20s %10dms %10dms%n", mode.name(), median(ready), median(firstPage));
+        }
+    }
+
+    // 戻り値は { ready, first page }（ミリ秒）
+    private static long[] measure(Mode mode, Path workingDirectory, Path log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(mode.command());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:startup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=warn"));
+        String base = "http://localhost:" + port;
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .cookieHandler(new CookieManager())
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            while (status(client, base + "/login") != 200) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + " exited; see target/startup-benchmark.log");
+                }
+                if (System.nanoTime() - start > Duration.ofMinutes(2).toNanos()) {
+                    throw new IllegalStateException(mode.name() + " did not start in 2 minutes");
+                }
+                Thread.sleep(10);
+            }
+            long ready = System.nanoTime();
+
+            post(client, base + "/register", "email=startup@example.com&password=startup-password&university=bench");
+            post(client, base + "/login", "username=startup@example.com&password=startup-password");
+            if (status(client, base + "/reviews") != 200) {
+                throw new IllegalStateException(mode.name() + ": GET /reviews failed");
+            }
+            long firstPage = System.nanoTime();
+            return new long[] { (ready - start) / 1_000_000, (firstPage - start) / 1_000_000 };
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int status(HttpClient client, String url) {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            // まだ受け付けていない
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static void post(HttpClient client, String url, String form) throws Exception {
+        client.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.demo;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// 負荷試験・ベンチマーク用の合成データ（LoadHarness と JMH の BenchmarkApp が使う）
+// ・授業名・教員名は日本語で、人気は Zipf 分布（一部の授業・先生にレビューが集中する）
+// ・評価は高めに偏らせ、いいね数・コメント数は裾の長い分布
+// ・コメントは既存コメントへの返信（返信への返信も）を混ぜる
+// ・同じ seed なら同じデータになる
+public class SyntheticData {
+
+    public static final String PASSWORD = "load-test-password";
+
+    static final String[] SUBJECTS = { "線形代数", "微分積分", "データ構造", "アルゴリズム", "統計学", "計量経済学",
+            "有機化学", "無機化学", "熱力学", "電磁気学", "量子力学", "解析力学", "民法", "憲法", "刑法", "行政法",
+            "マクロ経済学", "ミクロ経済学", "経営戦略論", "会計学", "心理学", "社会学", "文化人類学", "日本史",
+            "西洋史", "哲学", "倫理学", "英語コミュニケーション", "中国語", "ドイツ語", "フランス語",
+            "プログラミング演習", "情報セキュリティ", "データベース", "オペレーティングシステム", "機械学習",
+            "生物学", "分子生物学", "地学", "教育学" };
+    static final String[] LEVELS = { "", "入門", "基礎", "I", "II", "応用", "演習", "特論" };
+    // 名字は多い順（この順で Zipf の順位になる）
+    static final String[] FAMILY = { "佐藤", "鈴木", "高橋", "田中", "伊藤", "渡辺", "山本", "中村", "小林", "加藤",
+            "吉田", "山田", "佐々木", "山口", "松本", "井上", "木村", "林", "斎藤", "清水", "山崎", "森", "池田",
+            "橋本", "阿部", "石川", "山下", "中島", "石井", "小川", "前田", "岡田", "長谷川", "藤田", "後藤",
+            "近藤", "村上", "遠藤", "青木", "坂本" };
+    static final String[] GIVEN = { "健一", "美穂", "誠", "裕子", "大輔", "直子", "浩", "恵", "隆", "由美", "翔太",
+            "彩", "和也", "智子", "拓也", "陽子", "修", "真理子", "亮", "香織" };
+    static final String[] UNIVERSITIES = { "東都大学", "関西学院大学", "北海大学", "九州工科大学", "中央理科大学",
+            "南山文化大学", "東北総合大学", "湘南情報大学" };
+    static final String[] PHRASES = { "課題は毎週あります。", "試験は持ち込み不可でした。", "出席点が大きいです。",
+            "説明がとてもわかりやすい。", "板書が速いので注意。", "レポートが重めです。", "グループワーク中心。",
+            "過去問があると楽です。", "質問に丁寧に答えてくれます。", "単位は取りやすいと思います。" };
+
+    // 順位 1..n を確率 1/k^s に比例して返す（累積表を二分探索）
+    public static class Zipf {
+        private final double[] cumulative;
+
+        public Zipf(int n, double s) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1.0 / Math.pow(k, s);
+                cumulative[k - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        // 0 始まりの順位
+        public int next(Random random) {
+            double u = random.nextDouble();
+            int lo = 0;
+            int hi = cumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] < u) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        public int size() {
+            return cumulative.length;
+        }
+    }
+
+    // 作ったデータの概要（負荷をかける側が、人気に沿って id やキーワードを選ぶのに使う）
+    public static class Dataset {
+        final List<String> userEmails = new ArrayList<>();
+        final List<Integer> reviewIds = new ArrayList<>();
+        int comments;
+
+        public List<String> getUserEmails() { return userEmails; }
+        public List<Integer> getReviewIds() { return reviewIds; }
+        public int getComments() { return comments; }
+    }
+
+    private final Random random;
+    private final List<String> courses = new ArrayList<>();
+    private final List<String> teachers = new ArrayList<>();
+    private final Zipf coursePopularity;
+    private final Zipf teacherPopularity;
+    private final Zipf familyPopularity;
+
+    public SyntheticData(long seed) {
+        this.random = new Random(seed);
+        for (String level : LEVELS) {
+            for (String subject : SUBJECTS) {
+                courses.add(level.isEmpty() ? subject : subject + level);
+            }
+        }
+        Collections.shuffle(courses, random);
+        familyPopularity = new Zipf(FAMILY.length, 1.0);
+        for (int i = 0; i < 600; i++) {
+            teachers.add(FAMILY[familyPopularity.next(random)] + " " + GIVEN[random.nextInt(GIVEN.length)]);
+        }
+        coursePopularity = new Zipf(courses.size(), 1.07);
+        teacherPopularity = new Zipf(teachers.size(), 1.07);
+    }
+
+    // 人気に沿った授業名・教員名（検索キーワードにも使う）
+    public String course(Random r) {
+        return courses.get(coursePopularity.next(r));
+    }
+
+    public String teacher(Random r) {
+        return teachers.get(teacherPopularity.next(r));
+    }
+
+    // 授業ごとに担当の先生はだいたい決まっている（上位3人から Zipf で選ぶ）
+    private String teacherFor(String course) {
+        int base = Math.floorMod(course.hashCode(), teachers.size());
+        int offset = random.nextDouble() < 0.7 ? 0 : random.nextInt(3);
+        // 人気の先生ほど多くの授業を持つよう、半分は人気順から選ぶ
+        return random.nextBoolean() ? teachers.get((base + offset) % teachers.size()) : teacher(random);
+    }
+
+    private int rating() {
+        double u = random.nextDouble();
+        if (u < 0.30) return 5;
+        if (u < 0.65) return 4;
+        if (u < 0.85) return 3;
+        if (u < 0.95) return 2;
+        return 1;
+    }
+
+    // 裾の長い正の整数（パレート分布）
+    private int heavyTail(double scale, int max) {
+        double u = 1 - random.nextDouble();
+        return (int) Math.min(max, scale * (Math.pow(u, -1 / 1.5) - 1));
+    }
+
+    private String text(int sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            sb.append(PHRASES[random.nextInt(PHRASES.length)]);
+        }
+        return sb.toString();
+    }
+
+    // =========================
+    // 書き込み
+    // =========================
+    public Dataset generate(ApplicationContext context, int users, int reviews) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Dataset dataset = new Dataset();
+        insertUsers(jdbc, context.getBean(PasswordEncoder.class), users, dataset);
+        insertReviews(context.getBean(ReviewImporter.class), jdbc, reviews, dataset);
+        insertComments(jdbc, dataset);
+        return dataset;
+    }
+
+    // パスワードは全員同じ（ハッシュ計算は1回だけ）
+    private void insertUsers(JdbcTemplate jdbc, PasswordEncoder encoder, int users, Dataset dataset) {
+        String hash = encoder.encode(PASSWORD);
+        String prefix = "load" + Long.toString(random.nextLong() & 0xffffff, 36);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String email = prefix + "." + i + "@example.ac.jp";
+            dataset.userEmails.add(email);
+            batch.add(new Object[] { email, hash, "ROLE_STUDENT", UNIVERSITIES[random.nextInt(UNIVERSITIES.length)] });
+            if (batch.size() == 1000 || i == users - 1) {
+                jdbc.batchUpdate("insert into users (email, password, role, university) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void insertReviews(ReviewImporter importer, JdbcTemplate jdbc, int reviews, Dataset dataset) {
+        int before = jdbc.queryForObject("select coalesce(max(id), 0) from review", Integer.class);
+        LocalDateTime start = LocalDateTime.now().minusDays(365 * 3);
+        long spanMinutes = 365L * 3 * 24 * 60;
+        Iterator<ImportRow> rows = new Iterator<>() {
+            int line;
+
+            @Override
+            public boolean hasNext() {
+                return line < reviews;
+            }
+
+            @Override
+            public ImportRow next() {
+                line++;
+                String course = course(random);
+                Map<String, String> f = new HashMap<>();
+                f.put("courseName", course);
+                f.put("teacherName", teacherFor(course));
+                f.put("rating", String.valueOf(rating()));
+                f.put("likes", String.valueOf(heavyTail(3, 5000)));
+                f.put("comment", text(1 + random.nextInt(4)));
+                f.put("userEmail", dataset.userEmails.get(random.nextInt(dataset.userEmails.size())));
+                // 古い順に並べて作る（id 順と投稿日時順がだいたい揃う）
+                f.put("createdAt", start.plusMinutes(spanMinutes * line / reviews).toString());
+                return ImportRow.of(line, f);
+            }
+        };
+        importer.importRows(rows, new ReviewImporter.Listener() {
+            @Override
+            public void onError(ImportError error) {
+                throw new IllegalStateException("line " + error.getLine() + ": " + error.getMessage());
+            }
+
+            @Override
+            public void onProgress(ImportProgress progress) {
+            }
+        });
+        dataset.reviewIds.addAll(jdbc.queryForList("select id from review where id > ? order by id",
+                Integer.class, before));
+    }
+
+    // コメントは id を自分で振ってバッチ INSERT（返信の親 id を先に知るため）。最後に採番を進めておく
+    private void insertComments(JdbcTemplate jdbc, Dataset dataset) {
+        List<Long> userIds = jdbc.queryForList("select id from users", Long.class);
+        long nextId = jdbc.queryForObject("select coalesce(max(id), 0) from comment", Long.class) + 1;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>();
+        for (Integer reviewId : dataset.reviewIds) {
+            int count = heavyTail(0.6, 300);
+            List<Long> thread = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Long parent = thread.isEmpty() || random.nextDouble() < 0.4
+                        ? null
+                        : thread.get(random.nextInt(thread.size()));
+                long id = nextId++;
+                thread.add(id);
+                batch.add(new Object[] { id, reviewId, userIds.get(random.nextInt(userIds.size())),
+                        text(1 + random.nextInt(2)), now, parent,
+                        UNIVERSITIES[random.nextInt(UNIVERSITIES.length)], "学部", "学科" });
+                if (batch.size() == 1000) {
+                    flushComments(jdbc, batch);
+                }
+            }
+            dataset.comments += count;
+        }
+        flushComments(jdbc, batch);
+        jdbc.execute("alter table comment alter column id restart with " + nextId);
+    }
+
+    private static void flushComments(JdbcTemplate jdbc, List<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        jdbc.batchUpdate("insert into comment (id, review_id, user_id, content, created_at, parent_comment_id, "
+                + "university, faculty, department) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// プラットフォームスレッドと仮想スレッドの比較（手で動かすベンチマーク。テストとしては実行されない）
+//   mvn test-compile
+//   java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+//        com.example.demo.ThreadModeBenchmark [同時接続数] [リクエスト数] [Tomcat のスレッド数] [--spring.xxx=...]
+// ・アプリを同じ JVM 内で2回起動し（仮想スレッドは Java 21 以上のときだけ）、同じ負荷をかけて p50 / p99 を比べる
+// ・既定はテスト用の組み込み H2。ネットワーク待ちが無いので差は小さく出る。
+//   本番に近い数字を見るなら --spring.datasource.url=jdbc:postgresql://... などを付けて実際の DB に向ける
+// ・キャッシュを切って、毎回 DB まで行くようにしている
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // devtools の再起動が main を引数なしで呼び直すので切る
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> numbers = new ArrayList<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String a : args) {
+            (a.startsWith("--") ? springArgs : numbers).add(a);
+        }
+        int concurrency = numbers.size() > 0 ? Integer.parseInt(numbers.get(0)) : 200;
+        int requests = numbers.size() > 1 ? Integer.parseInt(numbers.get(1)) : 20_000;
+        int tomcatThreads = numbers.size() > 2 ? Integer.parseInt(numbers.get(2)) : 50;
+
+        run(false, concurrency, requests, tomcatThreads, springArgs);
+        if (ThreadingConfig.virtualThreadsAvailable()) {
+            run(true, concurrency, requests, tomcatThreads, springArgs);
+        } else {
+            System.out.println("virtual  : skipped (needs Java 21, running on " + Runtime.version() + ")");
+        }
+    }
+
+    private static void run(boolean virtual, int concurrency, int requests, int tomcatThreads,
+                            List<String> springArgs) throws Exception {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtual,
+                "review.db.admission.enabled=" + virtual,
+                "server.tomcat.threads.max=" + tomcatThreads,
+                "review.cache.enabled=false",
+                "review.fragments.enabled=false",
+                "logging.level.root=warn"));
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run(springArgs.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Integer> ids = seed(context.getBean(ReviewService.class));
+            String base = "http://localhost:" + port;
+
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .cookieHandler(new CookieManager())
+                    .build();
+            login(context, client, base);
+            // ウォームアップ
+            load(client, base, ids, Math.min(concurrency, 20), 2_000);
+            long start = System.nanoTime();
+            long[] latencies = load(client, base, ids, concurrency, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            Map<?, ?> threads = context.getBean(ThreadStatsController.class).stats();
+            System.out.printf("%-9s: %,d req in %.1fs = %,.0f req/s, p50 %.1fms, p99 %.1fms, errors %d, admission %s%n",
+                    virtual ? "virtual" : "platform", requests, seconds, requests / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    errors.getAndSet(0), threads.get("admission"));
+        }
+    }
+
+    // /api/** はログインが要るので、ベンチマーク用のユーザーでセッションを作る
+    private static void login(ConfigurableApplicationContext context, HttpClient client, String base) throws Exception {
+        String email = "bench@example.com";
+        String password = "bench-password";
+        UserRepository users = context.getBean(UserRepository.class);
+        if (users.findByEmail(email).isEmpty()) {
+            String hash = context.getBean(PasswordEncoder.class).encode(password);
+            users.save(new User(email, hash, "ROLE_STUDENT", "ベンチ大学"));
+        }
+        client.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("username=" + email + "&password=" + password))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static List<Integer> seed(ReviewService service) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Review r = new Review("授業" + (i % 40), "教員" + (i % 25), 1 + i % 5, "ベンチマーク用のレビュー " + i);
+            service.addReview(r);
+            ids.add(r.getId());
+        }
+        return ids;
+    }
+
+    private static final AtomicInteger errors = new AtomicInteger();
+
+    // 一覧とレビュー JSON を半分ずつ。戻り値は各リクエストの所要時間（ナノ秒）
+    private static long[] load(HttpClient client, String base, List<Integer> ids,
+                               int concurrency, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < concurrency; w++) {
+                workers.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        String path = (i & 1) == 0
+                                ? "/api/reviews/" + ids.get(random.nextInt(ids.size()))
+                                : "/api/reviews?limit=50&cursor=" + random.nextInt(150);
+                        long t = System.nanoTime();
+                        try {
+                            HttpResponse<Void> res = client.send(
+                                    HttpRequest.newBuilder(URI.create(base + path)).build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (res.statusCode() >= 400) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - t;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : workers) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+// AOT でビルド時に決まった仮想スレッドの設定と、実行時の設定が食い違ったら起動しない
+class ThreadingConfigTests {
+
+	private final ApplicationContextRunner runner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(PropertyPlaceholderAutoConfiguration.class))
+			// 30s などの Duration を読めるように
+			.withInitializer(context -> context.getBeanFactory()
+					.setConversionService(ApplicationConversionService.getSharedInstance()))
+			.withUserConfiguration(ThreadingConfig.class);
+
+	@Test
+	void startsWhenTheModeMatchesTheBuild() {
+		runner.withPropertyValues("spring.threads.virtual.enabled=false")
+				.run(context -> assertThat(context).hasNotFailed()
+						.doesNotHaveBean(ThreadingConfig.VirtualThreadsBuild.class));
+	}
+
+	// 仮想スレッドでビルドしたものを REVIEW_VIRTUAL_THREADS=false で起動した場合
+	@Test
+	void failsWhenTheRuntimeModeDiffersFromTheBuild() {
+		runner.withPropertyValues("spring.threads.virtual.enabled=false")
+				.withBean("builtForVirtualThreads", ThreadingConfig.VirtualThreadsBuild.class)
+				.run(context -> assertThat(context).hasFailed()
+						.getFailure().hasMessageContaining("REVIEW_VIRTUAL_THREADS=false"));
+	}
+}
@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(properties = { "review.trending.half-life=24h", "review.trending.comment-weight=3" })
+class TrendingScorerTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@Autowired
+	private CommentRepository comments;
+
+	@Autowired
+	private TrendingScorer scorer;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private Review old;
+	private Review recent;
+	private Review fresh;
+
+	@BeforeEach
+	void seed() {
+		// 5日前に 50 いいね / 1日前に 5 いいね / 今日 0
+		old = add("古典文学", 50, 5);
+		recent = add("現代文学", 5, 1);
+		fresh = add("比較文学", 0, 0);
+		scorer.recomputeAll();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		comments.deleteAll();
+		repository.findAll().forEach(r -> service.deleteById(r.getId()));
+	}
+
+	private Review add(String course, int likes, int daysAgo) {
+		Review r = new Review(course, "高橋", 3, "x");
+		service.addReview(r);
+		jdbc.update("update review set likes = ?, created_at = ? where id = ?",
+				likes, Timestamp.valueOf(LocalDateTime.now().minusDays(daysAgo)), r.getId());
+		return r;
+	}
+
+	private List<Integer> trending(String keyword) {
+		return service.search(keyword, "all", "trending", null, 50).getItems().stream()
+				.map(ReviewCard::getId).toList();
+	}
+
+	@Test
+	void ranksByActivityDecayedByAge() {
+		// log2(1+5) - 1 = 1.58 > log2(1+50) - 5 = 0.67 > 0
+		assertThat(trending(null)).containsExactly(recent.getId(), old.getId(), fresh.getId());
+		// キーワード検索（メモリ上の索引）でも同じ並び
+		assertThat(trending("文学")).containsExactly(recent.getId(), old.getId(), fresh.getId());
+
+		// 古いほど同じ反応でも下がる
+		LocalDateTime now = LocalDateTime.now();
+		assertThat(scorer.score(10, 0, now)).isGreaterThan(scorer.score(10, 0, now.minusDays(1)));
+		assertThat(scorer.score(0, 1, now)).isEqualTo(scorer.score(3, 0, now));
+	}
+
+	@Test
+	void refreshPicksUpNewCommentsAndPagesWithCursor() {
+		// コメント1件（いいね3件分）で log2(1+3) = 2 になり先頭へ
+		service.addComment(service.getById(fresh.getId()), null, "盛り上がってる", "A大学", "文学部", "国文科");
+		scorer.refresh();
+		assertThat(trending(null)).containsExactly(fresh.getId(), recent.getId(), old.getId());
+
+		List<Integer> paged = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<ReviewCard> page = service.search(null, "all", "trending", cursor, 1);
+			page.getItems().forEach(c -> paged.add(c.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		assertThat(paged).containsExactly(fresh.getId(), recent.getId(), old.getId());
+	}
+
+	// 2回目からは前回以降に変わった（更新・コメントのあった）レビューだけを計算し直す
+	@Test
+	void refreshRescoresOnlyChangedReviews() {
+		scorer.refresh();
+		jdbc.update("update review set updated_at = ?", Timestamp.valueOf(LocalDateTime.now().minusDays(1)));
+		jdbc.update("update review set trending_score = 0 where id in (?, ?)", old.getId(), fresh.getId());
+		service.addComment(service.getById(fresh.getId()), null, "質問", "A大学", "文学部", "国文科");
+
+		scorer.refresh();
+
+		assertThat(jdbc.queryForObject("select trending_score from review where id = ?", Integer.class, fresh.getId()))
+				.isNotZero();
+		assertThat(jdbc.queryForObject("select trending_score from review where id = ?", Integer.class, old.getId()))
+				.isZero();
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "review.uploads.dir=target/test-uploads")
+@AutoConfigureMockMvc
+class UploadControllerTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	private MockHttpSession session;
+
+	@BeforeEach
+	void login() {
+		LoginUser user = new LoginUser(1L, "u@example.com", null, "ROLE_STUDENT", "大学");
+		session = new MockHttpSession();
+		session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+	}
+
+	@Test
+	void servesWithImmutableCachingAndEtag() throws Exception {
+		String path = imageStore.store(new MockMultipartFile("imageFile", "a.txt", "text/plain",
+				"0123456789".getBytes(StandardCharsets.UTF_8)));
+		String etag = mvc.perform(get(path).session(session))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "private, max-age=31536000, immutable"))
+				.andExpect(header().string("Accept-Ranges", "bytes"))
+				.andExpect(content().string("0123456789"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(etag).startsWith("\"").endsWith("\"");
+
+		mvc.perform(get(path).session(session).header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+
+		mvc.perform(get(path).session(session).header("Range", "bytes=2-4"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 2-4/10"))
+				.andExpect(content().string("234"));
+
+		mvc.perform(get(path).session(session).header("Range", "bytes=-3"))
+				.andExpect(content().string("789"));
+
+		mvc.perform(get(path).session(session).header("Range", "bytes=20-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+	}
+
+	@Test
+	void rejectsUnknownAndUnsafeNames() throws Exception {
+		mvc.perform(get("/uploads/missing.png").session(session)).andExpect(status().isNotFound());
+		mvc.perform(get("/uploads/.hidden").session(session)).andExpect(status().isNotFound());
+	}
+}